@@ -0,0 +1,88 @@
+package com.osmi.dev.duplicatefinder.benchmark;
+
+import com.osmi.dev.duplicatefinder.config.DuplicateFinderProperties;
+import com.osmi.dev.duplicatefinder.model.DuplicateMatch;
+import com.osmi.dev.duplicatefinder.service.ContactService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carga concurrente de peticiones de subida servidas con hilos de plataforma o con hilos virtuales.
+ *
+ * Cada petición espera {@code ioMillis} (la recepción del multipart) y después lee un .xlsx pequeño
+ * y busca duplicados. Los hilos de JMH hacen de clientes y entregan sus peticiones a un pool fijo
+ * de {@code serverThreads} hilos de plataforma, como el de Tomcat, o a un hilo virtual por
+ * petición. Con {@code maxConcurrentScoring} se prueba el tope de búsquedas simultáneas. Se miden
+ * peticiones por segundo y la latencia con percentiles (p99 incluido).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(64)
+public class ConcurrentUploadBenchmark {
+
+    @Param({"platform", "virtual"})
+    String threadMode;
+
+    @Param({"16"})
+    int serverThreads;
+
+    @Param({"20"})
+    int ioMillis;
+
+    @Param({"1000"})
+    int rows;
+
+    /** Búsquedas que puntúan a la vez; 0 usa el número de núcleos. */
+    @Param({"0"})
+    int maxConcurrentScoring;
+
+    private byte[] workbook;
+    private ContactService contactService;
+    private ExecutorService server;
+
+    @Setup
+    public void setUp() throws Exception {
+        workbook = ContactGenerator.toWorkbook(ContactGenerator.generate(rows, 0.1, 42L));
+        DuplicateFinderProperties properties = new DuplicateFinderProperties();
+        properties.getMatching().setMaxConcurrentScoring(maxConcurrentScoring);
+        contactService = new ContactService(properties);
+        server = "virtual".equals(threadMode)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(serverThreads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.shutdownNow();
+    }
+
+    @Benchmark
+    public List<DuplicateMatch> upload() throws Exception {
+        return server.submit(() -> {
+            Thread.sleep(ioMillis);
+            return contactService.findDuplicates(
+                    contactService.parseContactsFromExcel(new ByteArrayInputStream(workbook)));
+        }).get();
+    }
+}
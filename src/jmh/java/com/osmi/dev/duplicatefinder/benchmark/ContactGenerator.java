@@ -0,0 +1,89 @@
+package com.osmi.dev.duplicatefinder.benchmark;
+
+import com.osmi.dev.duplicatefinder.model.Contact;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Genera contactos sintéticos con una proporción configurable de duplicados.
+ *
+ * Cada fila duplicada copia una fila anterior: la mitad comparte el email (precisión "Alta")
+ * y la otra mitad comparte apellido y código postal con un email distinto (precisión "Baja").
+ * Con la misma semilla se obtienen siempre los mismos datos.
+ */
+public final class ContactGenerator {
+
+    private static final String[] NOMBRES = {"Ana", "Luis", "Carmen", "Jose", "Lucia", "Miguel", "Elena", "Pablo"};
+    private static final int APELLIDOS = 500;
+    private static final int CODIGOS_POSTALES = 10_000;
+
+    private ContactGenerator() {
+    }
+
+    /**
+     * @param rows número de contactos
+     * @param duplicateRatio fracción (0..1) de filas que duplican una fila anterior
+     * @param seed semilla del generador aleatorio
+     */
+    public static List<Contact> generate(int rows, double duplicateRatio, long seed) {
+        Random random = new Random(seed);
+        List<Contact> contacts = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Contact contact = new Contact();
+            contact.setId(String.valueOf(100_000 + i));
+            contact.setNombre(NOMBRES[random.nextInt(NOMBRES.length)]);
+            contact.setDireccion("Calle " + random.nextInt(1_000) + " " + random.nextInt(100));
+
+            if (i > 0 && random.nextDouble() < duplicateRatio) {
+                Contact original = contacts.get(random.nextInt(i));
+                contact.setApellido(original.getApellido());
+                contact.setCodigoPostal(original.getCodigoPostal());
+                contact.setEmail(random.nextBoolean()
+                        ? original.getEmail().toUpperCase()
+                        : "otro" + i + "@ejemplo.com");
+            } else {
+                contact.setApellido("Apellido" + random.nextInt(APELLIDOS));
+                contact.setCodigoPostal(String.valueOf(10_000 + random.nextInt(CODIGOS_POSTALES)));
+                contact.setEmail("contacto" + i + "@ejemplo.com");
+            }
+            contacts.add(contact);
+        }
+        return contacts;
+    }
+
+    /**
+     * Escribe los contactos como .xlsx con las dos filas de cabecera que espera el lector.
+     * Usa SXSSFWorkbook para poder generar libros grandes sin agotar la memoria.
+     */
+    public static byte[] toWorkbook(List<Contact> contacts) throws IOException {
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(1_000); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("Contacts");
+            sheet.createRow(0).createCell(0).setCellValue("Contactos");
+            Row header = sheet.createRow(1);
+            String[] titles = {"ContactID", "Nombre", "Apellido", "Email", "Codigo Postal", "Direccion"};
+            for (int c = 0; c < titles.length; c++) {
+                header.createCell(c).setCellValue(titles[c]);
+            }
+            for (int i = 0; i < contacts.size(); i++) {
+                Contact contact = contacts.get(i);
+                Row row = sheet.createRow(i + 2);
+                row.createCell(0).setCellValue(Long.parseLong(contact.getId()));
+                row.createCell(1).setCellValue(contact.getNombre());
+                row.createCell(2).setCellValue(contact.getApellido());
+                row.createCell(3).setCellValue(contact.getEmail());
+                row.createCell(4).setCellValue(Long.parseLong(contact.getCodigoPostal()));
+                row.createCell(5).setCellValue(contact.getDireccion());
+            }
+            workbook.write(out);
+            workbook.dispose();
+            return out.toByteArray();
+        }
+    }
+}
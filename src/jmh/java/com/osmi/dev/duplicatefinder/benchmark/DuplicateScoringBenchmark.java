@@ -0,0 +1,84 @@
+package com.osmi.dev.duplicatefinder.benchmark;
+
+import com.osmi.dev.duplicatefinder.config.DuplicateFinderProperties;
+import com.osmi.dev.duplicatefinder.model.Contact;
+import com.osmi.dev.duplicatefinder.model.DuplicateMatch;
+import com.osmi.dev.duplicatefinder.service.ContactService;
+import com.osmi.dev.duplicatefinder.service.ProgressListener;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rendimiento de {@link ContactService#findDuplicates} sobre contactos ya leídos.
+ *
+ * Además de las llamadas por segundo, el contador auxiliar "pairs" informa de los pares
+ * puntuados por segundo, que es la medida que interesa al cambiar el bloqueo o el scoring.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class DuplicateScoringBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int rows;
+
+    @Param({"0.1", "0.5"})
+    double duplicateRatio;
+
+    /** 1 = secuencial, 0 = todos los núcleos. */
+    @Param({"1", "0"})
+    int parallelism;
+
+    private List<Contact> contacts;
+    private ContactService contactService;
+
+    @Setup
+    public void setUp() {
+        contacts = ContactGenerator.generate(rows, duplicateRatio, 42L);
+        DuplicateFinderProperties properties = new DuplicateFinderProperties();
+        properties.getMatching().setParallelism(parallelism);
+        contactService = new ContactService(properties);
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class PairCounter {
+        public long pairs;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            pairs = 0;
+        }
+    }
+
+    @Benchmark
+    public List<DuplicateMatch> findDuplicates(PairCounter counter) {
+        LongAdder compared = new LongAdder();
+        List<DuplicateMatch> matches = contactService.findDuplicates(contacts, new ProgressListener() {
+            @Override
+            public void pairsCompared(long pairs) {
+                compared.add(pairs);
+            }
+        });
+        counter.pairs += compared.sum();
+        return matches;
+    }
+}
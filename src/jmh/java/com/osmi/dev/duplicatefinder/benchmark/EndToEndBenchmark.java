@@ -0,0 +1,52 @@
+package com.osmi.dev.duplicatefinder.benchmark;
+
+import com.osmi.dev.duplicatefinder.model.DuplicateMatch;
+import com.osmi.dev.duplicatefinder.service.ContactService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia de extremo a extremo (lectura del .xlsx + detección), con percentiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class EndToEndBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int rows;
+
+    @Param({"0.1"})
+    double duplicateRatio;
+
+    private byte[] workbook;
+    private ContactService contactService;
+
+    @Setup
+    public void setUp() throws Exception {
+        workbook = ContactGenerator.toWorkbook(ContactGenerator.generate(rows, duplicateRatio, 42L));
+        contactService = new ContactService();
+    }
+
+    @Benchmark
+    public List<DuplicateMatch> parseAndFindDuplicates() throws Exception {
+        return contactService.findDuplicates(
+                contactService.parseContactsFromExcel(new ByteArrayInputStream(workbook)));
+    }
+}
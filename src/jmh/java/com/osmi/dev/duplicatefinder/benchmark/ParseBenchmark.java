@@ -0,0 +1,51 @@
+package com.osmi.dev.duplicatefinder.benchmark;
+
+import com.osmi.dev.duplicatefinder.model.Contact;
+import com.osmi.dev.duplicatefinder.service.ContactService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendimiento de {@link ContactService#parseContactsFromExcel} sobre libros generados en memoria.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int rows;
+
+    @Param({"0.1"})
+    double duplicateRatio;
+
+    private byte[] workbook;
+    private ContactService contactService;
+
+    @Setup
+    public void setUp() throws Exception {
+        workbook = ContactGenerator.toWorkbook(ContactGenerator.generate(rows, duplicateRatio, 42L));
+        contactService = new ContactService();
+    }
+
+    @Benchmark
+    public List<Contact> parse() throws Exception {
+        return contactService.parseContactsFromExcel(new ByteArrayInputStream(workbook));
+    }
+}
@@ -0,0 +1,306 @@
+package com.osmi.dev.duplicatefinder.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuración de la aplicación bajo el prefijo {@code duplicatefinder} en application.properties.
+ */
+@Data
+@ConfigurationProperties(prefix = "duplicatefinder")
+public class DuplicateFinderProperties {
+
+    private final Matching matching = new Matching();
+    private final Jobs jobs = new Jobs();
+    private final Results results = new Results();
+    private final Fuzzy fuzzy = new Fuzzy();
+    private final Cache cache = new Cache();
+    private final Csv csv = new Csv();
+    private final Excel excel = new Excel();
+    private final Scoring scoring = new Scoring();
+    private final Admission admission = new Admission();
+    private final Snapshots snapshots = new Snapshots();
+
+    @Data
+    public static class Matching {
+
+        /**
+         * Número de hilos para puntuar pares. 0 usa todos los núcleos disponibles y 1 fuerza
+         * la ejecución secuencial en el hilo que llama.
+         */
+        private int parallelism = 0;
+
+        /**
+         * Si los trabajos en modo pares leen y puntúan a la vez: un hilo lee el Excel y pasa los
+         * contactos por una cola acotada a otro que los añade a un índice incremental.
+         */
+        private boolean pipelined = false;
+
+        /** Contactos que pueden esperar en la cola entre el lector y el indexador. */
+        private int pipelineQueueCapacity = 1024;
+
+        /**
+         * Si los trabajos en modo pares se resuelven fuera de memoria: las claves de bloqueo se
+         * escriben en archivos temporales y se ordenan externamente, sin cargar la lista de contactos.
+         */
+        private boolean outOfCore = false;
+
+        /** Registros que se ordenan en memoria antes de volcar un tramo a disco en el modo fuera de memoria. */
+        private int sortRunSize = 200_000;
+
+        /**
+         * Registros de un mismo bloque que se puntúan en memoria en el modo fuera de memoria. Los
+         * bloques mayores se vuelcan a disco y se puntúan por tramos de este tamaño.
+         */
+        private int maxBlockRows = 50_000;
+
+        /**
+         * Búsquedas de duplicados que puntúan a la vez; el resto espera su turno. Con hilos
+         * virtuales evita que el trabajo de CPU ocupe todos los hilos portadores. 0 usa un núcleo
+         * menos que los disponibles, para dejar siempre un portador libre.
+         */
+        private int maxConcurrentScoring = 0;
+
+        /**
+         * Fragmentos en los que se reparte la búsqueda de pares por hash de las claves de
+         * bloqueo. Cada fragmento se puntúa por separado y los resultados se mezclan. 1 desactiva
+         * el reparto.
+         */
+        private int shards = 1;
+
+        /**
+         * Devuelve el paralelismo efectivo, resolviendo 0 al número de núcleos.
+         */
+        public int effectiveParallelism() {
+            return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        }
+
+        /**
+         * Devuelve el número efectivo de búsquedas simultáneas, resolviendo 0 a un núcleo menos que
+         * los disponibles (al menos 1). Los hilos portadores de los hilos virtuales son tantos como
+         * núcleos, así que con el valor por defecto siempre queda uno para atender peticiones.
+         */
+        public int effectiveMaxConcurrentScoring() {
+            return maxConcurrentScoring > 0 ? maxConcurrentScoring : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        }
+    }
+
+    @Data
+    public static class Jobs {
+
+        /** Trabajos que se procesan a la vez. */
+        private int maxConcurrent = 2;
+
+        /** Trabajos que pueden esperar en cola; por encima se rechazan nuevas subidas. */
+        private int queueCapacity = 16;
+
+        /** Trabajos terminados que se conservan para consultar sus resultados. */
+        private int retainedJobs = 50;
+
+        /**
+         * Si los trabajos se ejecutan en hilos virtuales. Los límites de trabajos a la vez y de cola
+         * se mantienen; solo cambia el tipo de hilo.
+         */
+        private boolean virtualThreads = false;
+    }
+
+    @Data
+    public static class Results {
+
+        /** Coincidencias por página en la vista HTML. */
+        private int pageSize = 100;
+
+        /** Tamaño de página máximo que se acepta por parámetro. */
+        private int maxPageSize = 1000;
+    }
+
+    /**
+     * Comparación aproximada de nombre y dirección con distancia de Levenshtein acotada.
+     * Solo se aplica a pares candidatos de algún bloque, incluido el bloque fonético
+     * (apellido según su pronunciación más la inicial del nombre).
+     */
+    @Data
+    public static class Fuzzy {
+
+        private boolean enabled = false;
+
+        /** Ediciones máximas para considerar iguales dos nombres. */
+        private int nombreMaxDistance = 2;
+
+        /** Ediciones máximas para considerar iguales dos direcciones. */
+        private int direccionMaxDistance = 3;
+
+        private int nombreScore = 15;
+
+        private int direccionScore = 15;
+    }
+
+    /**
+     * Admisión de subidas según la memoria que se estima que van a necesitar.
+     *
+     * Cada trabajo reserva del presupuesto el tamaño del archivo multiplicado por el factor de
+     * coste hasta que termina. Si no hay presupuesto libre, la petición espera en cola como mucho
+     * el tiempo indicado y después se rechaza con 429.
+     */
+    @Data
+    public static class Admission {
+
+        private boolean enabled = true;
+
+        /** Memoria que pueden reservar entre todos los trabajos. Vacío usa la mitad del heap máximo. */
+        private DataSize memoryBudget;
+
+        /** Bytes de heap que se estiman por cada byte del archivo subido. */
+        private double costFactor = 8;
+
+        /** Tiempo máximo que una subida espera a que haya presupuesto libre. */
+        private Duration queueTimeout = Duration.ofSeconds(10);
+
+        /**
+         * Devuelve el presupuesto efectivo en bytes, resolviendo el vacío a la mitad del heap máximo.
+         */
+        public long effectiveMemoryBudget() {
+            return memoryBudget != null ? memoryBudget.toBytes() : Runtime.getRuntime().maxMemory() / 2;
+        }
+    }
+
+    /**
+     * Caché de resultados por contenido del archivo subido.
+     */
+    @Data
+    public static class Cache {
+
+        private boolean enabled = true;
+
+        /** Resultados que se conservan; al superarlo se descarta el usado hace más tiempo. */
+        private int maxEntries = 20;
+
+        /** Tiempo que un resultado sigue siendo válido desde que se calculó. */
+        private Duration ttl = Duration.ofMinutes(30);
+    }
+
+    /**
+     * Copias binarias de los contactos leídos de cada archivo, por SHA-256 del contenido, para
+     * volver a procesarlo sin leerlo otra vez.
+     */
+    @Data
+    public static class Snapshots {
+
+        /**
+         * Si se guardan snapshots. Contienen los datos personales de los contactos y se conservan
+         * después de terminar el trabajo, por eso están desactivados por defecto.
+         */
+        private boolean enabled = false;
+
+        /** Directorio de los snapshots. Vacío usa "duplicatefinder-snapshots" en el directorio temporal. */
+        private Path directory;
+
+        /** Snapshots que se conservan; al superarlo se borra el usado hace más tiempo. */
+        private int maxEntries = 20;
+
+        /**
+         * Devuelve el directorio efectivo, resolviendo el vacío al directorio temporal del sistema.
+         */
+        public Path effectiveDirectory() {
+            return directory != null ? directory : Path.of(System.getProperty("java.io.tmpdir"), "duplicatefinder-snapshots");
+        }
+    }
+
+    /**
+     * Lectura de archivos CSV (o CSV comprimido con gzip).
+     */
+    @Data
+    public static class Csv {
+
+        /** Separador de campos; debe ser un carácter ASCII. */
+        private char delimiter = ',';
+
+        /** Registros de cabecera que se omiten al inicio del archivo. */
+        private int headerRows = 1;
+    }
+
+    /**
+     * Lectura de libros de Excel.
+     */
+    @Data
+    public static class Excel {
+
+        /**
+         * Hojas que se leen, por nombre. Vacío lee solo la primera hoja y "*" lee todas.
+         * Cada hoja empieza con sus propias filas de cabecera.
+         */
+        private List<String> sheets = new ArrayList<>();
+
+        /** Hojas que se leen a la vez. 0 usa todos los núcleos disponibles y 1 las lee de una en una. */
+        private int sheetParallelism = 0;
+
+        /**
+         * Devuelve el número de hojas que se leen a la vez, resolviendo 0 al número de núcleos.
+         */
+        public int effectiveSheetParallelism() {
+            return sheetParallelism > 0 ? sheetParallelism : Runtime.getRuntime().availableProcessors();
+        }
+    }
+
+    /**
+     * Reglas de puntuación de un par de contactos y umbrales de precisión.
+     *
+     * Cada regla compara uno o varios campos con un comparador y suma su peso si coinciden.
+     * Sin reglas se usan las de siempre: 90 puntos por email igual y 50 por código postal
+     * y apellido iguales. Con la comparación aproximada activada se añaden además sus reglas
+     * de nombre y dirección.
+     */
+    @Data
+    public static class Scoring {
+
+        /** Puntuaciones por encima de este valor tienen precisión alta. */
+        private int altaThreshold = 85;
+
+        /** Puntuaciones por encima de este valor (y hasta el umbral alto) tienen precisión baja. */
+        private int bajaThreshold = 20;
+
+        private List<Rule> rules = new ArrayList<>();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Rule {
+
+        /** Campos comparados; con varios, la regla solo suma si coinciden todos. */
+        private List<ContactField> fields = new ArrayList<>();
+
+        private Comparison comparator = Comparison.CASE_INSENSITIVE;
+
+        private int weight;
+
+        /** Ediciones máximas con el comparador LEVENSHTEIN. */
+        private int maxDistance = 2;
+
+        /** Caracteres iniciales comparados con el comparador PREFIX. */
+        private int prefixLength = 3;
+    }
+
+    public enum ContactField {
+        NOMBRE, APELLIDO, EMAIL, CODIGO_POSTAL, DIRECCION
+    }
+
+    public enum Comparison {
+        /** Valores idénticos, sin normalizar. */
+        EXACT,
+        /** Valores iguales tras normalizar el campo (mayúsculas, acentos y espacios). */
+        CASE_INSENSITIVE,
+        /** Valores normalizados a una distancia de edición de como mucho {@code maxDistance}. */
+        LEVENSHTEIN,
+        /** Primeros {@code prefixLength} caracteres iguales tras normalizar. */
+        PREFIX
+    }
+}
@@ -0,0 +1,69 @@
+package com.osmi.dev.duplicatefinder.controller;
+
+import com.osmi.dev.duplicatefinder.model.ContactFileFormat;
+import com.osmi.dev.duplicatefinder.model.IndexBatchResult;
+import com.osmi.dev.duplicatefinder.service.ContactIndexService;
+import com.osmi.dev.duplicatefinder.service.UploadThrottledException;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * API del índice incremental: se sube la lista maestra una vez y después los archivos
+ * de cambios, recibiendo solo las coincidencias nuevas de cada uno.
+ */
+@RestController
+@RequestMapping("/api/index")
+public class ContactIndexController {
+
+    private final ContactIndexService indexService;
+
+    public ContactIndexController(ContactIndexService indexService) {
+        this.indexService = indexService;
+    }
+
+    /**
+     * Añade los contactos del archivo al índice y devuelve las coincidencias que generan.
+     * Responde 429 si no hay memoria libre para leer el archivo.
+     */
+    @PostMapping("/batches")
+    public IndexBatchResult addBatch(@RequestParam("file") MultipartFile file) throws Exception {
+        if (file.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Por favor, selecciona un archivo para subir.");
+        }
+        try (InputStream inputStream = file.getInputStream()) {
+            return indexService.addBatch(inputStream, ContactFileFormat.detect(file.getOriginalFilename(), file.getContentType()),
+                    file.getSize());
+        } catch (UploadThrottledException e) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "El servidor está ocupado con otros archivos, inténtalo en unos segundos.");
+        }
+    }
+
+    /**
+     * Devuelve el número de contactos indexados.
+     */
+    @GetMapping
+    public Map<String, Integer> status() {
+        return Map.of("totalContacts", indexService.size());
+    }
+
+    /**
+     * Vacía el índice.
+     */
+    @DeleteMapping
+    public ResponseEntity<Void> clear() {
+        indexService.clear();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,180 @@
+package com.osmi.dev.duplicatefinder.controller;
+
+import com.osmi.dev.duplicatefinder.model.ContactFileFormat;
+import com.osmi.dev.duplicatefinder.model.DuplicateGroup;
+import com.osmi.dev.duplicatefinder.model.DuplicateMatch;
+import com.osmi.dev.duplicatefinder.model.JobMode;
+import com.osmi.dev.duplicatefinder.model.JobStatus;
+import com.osmi.dev.duplicatefinder.model.MatchPrecision;
+import com.osmi.dev.duplicatefinder.model.MatchQuery;
+import com.osmi.dev.duplicatefinder.model.UploadJob;
+import com.osmi.dev.duplicatefinder.service.MatchExporter;
+import com.osmi.dev.duplicatefinder.service.UploadJobService;
+import com.osmi.dev.duplicatefinder.service.UploadThrottledException;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * API de trabajos asíncronos: la subida devuelve un id al instante y el procesamiento
+ * continúa en segundo plano mientras el cliente consulta el progreso.
+ */
+@RestController
+@RequestMapping("/api/jobs")
+public class JobController {
+
+    static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final UploadJobService jobService;
+    private final MatchExporter matchExporter;
+
+    public JobController(UploadJobService jobService, MatchExporter matchExporter) {
+        this.jobService = jobService;
+        this.matchExporter = matchExporter;
+    }
+
+    /**
+     * Encola el archivo (Excel o CSV, según su extensión o tipo) y responde 202 con el estado
+     * inicial del trabajo.
+     * Responde 400 si el archivo está vacío, 429 si no queda memoria libre para procesarlo tras
+     * esperar en cola y 503 si la cola de trabajos está llena.
+     *
+     * @param mode      PAIRS (por defecto) para listar pares o GROUPS para agruparlos
+     * @param minScore  en modo PAIRS, puntuación mínima de las coincidencias
+     * @param precision en modo PAIRS, solo coincidencias ALTA o BAJA
+     * @param limit     en modo PAIRS, devolver solo las {@code limit} coincidencias de mayor puntuación
+     */
+    @PostMapping
+    public ResponseEntity<UploadJob> submit(@RequestParam("file") MultipartFile file,
+                                            @RequestParam(defaultValue = "PAIRS") JobMode mode,
+                                            @RequestParam(defaultValue = "0") int minScore,
+                                            @RequestParam(required = false) MatchPrecision precision,
+                                            @RequestParam(required = false) Integer limit) throws IOException {
+        if (file.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Por favor, selecciona un archivo para subir.");
+        }
+        if (minScore < 0 || (limit != null && limit < 1)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "minScore no puede ser negativo y limit debe ser mayor que 0.");
+        }
+        try {
+            ContactFileFormat format = ContactFileFormat.detect(file.getOriginalFilename(), file.getContentType());
+            UploadJob job = jobService.submit(file, mode, format, new MatchQuery(minScore, precision, limit));
+            return ResponseEntity.accepted().body(job);
+        } catch (UploadThrottledException e) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "El servidor está ocupado con otros archivos, inténtalo en unos segundos.");
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Hay demasiados archivos en proceso, inténtalo más tarde.");
+        }
+    }
+
+    /**
+     * Repite un trabajo sobre el mismo archivo con otro modo o consulta, leyendo los contactos
+     * de su snapshot en lugar de volver a subir y leer el archivo. Responde 202 con el nuevo
+     * trabajo, 404 si el trabajo no existe y 409 si su snapshot ya no está disponible.
+     */
+    @PostMapping("/{id}/rerun")
+    public ResponseEntity<UploadJob> rerun(@PathVariable String id,
+                                           @RequestParam(defaultValue = "PAIRS") JobMode mode,
+                                           @RequestParam(defaultValue = "0") int minScore,
+                                           @RequestParam(required = false) MatchPrecision precision,
+                                           @RequestParam(required = false) Integer limit) throws IOException {
+        UploadJob source = findJob(id);
+        if (minScore < 0 || (limit != null && limit < 1)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "minScore no puede ser negativo y limit debe ser mayor que 0.");
+        }
+        try {
+            return ResponseEntity.accepted().body(jobService.rerun(source, mode, new MatchQuery(minScore, precision, limit)));
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        } catch (UploadThrottledException e) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "El servidor está ocupado con otros archivos, inténtalo en unos segundos.");
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Hay demasiados archivos en proceso, inténtalo más tarde.");
+        }
+    }
+
+    /**
+     * Devuelve el estado y el progreso (filas leídas, pares comparados) del trabajo.
+     */
+    @GetMapping("/{id}")
+    public UploadJob status(@PathVariable String id) {
+        return findJob(id);
+    }
+
+    /**
+     * Devuelve las coincidencias de un trabajo terminado; 409 si aún no ha terminado o falló.
+     */
+    @GetMapping("/{id}/results")
+    public List<DuplicateMatch> results(@PathVariable String id) {
+        return completedJob(id, JobMode.PAIRS).getResults();
+    }
+
+    /**
+     * Devuelve los grupos de duplicados de un trabajo lanzado en modo GROUPS.
+     */
+    @GetMapping("/{id}/groups")
+    public List<DuplicateGroup> groups(@PathVariable String id) {
+        return completedJob(id, JobMode.GROUPS).getGroups();
+    }
+
+    /**
+     * Descarga las coincidencias como NDJSON, escribiendo la respuesta a medida que se recorren.
+     */
+    @GetMapping("/{id}/results.ndjson")
+    public ResponseEntity<StreamingResponseBody> resultsAsNdjson(@PathVariable String id) {
+        List<DuplicateMatch> matches = completedJob(id, JobMode.PAIRS).getResults();
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, attachment(id, "ndjson"))
+                .body(out -> matchExporter.writeNdjson(matches, out));
+    }
+
+    /**
+     * Descarga las coincidencias como CSV, escribiendo la respuesta a medida que se recorren.
+     */
+    @GetMapping("/{id}/results.csv")
+    public ResponseEntity<StreamingResponseBody> resultsAsCsv(@PathVariable String id) {
+        List<DuplicateMatch> matches = completedJob(id, JobMode.PAIRS).getResults();
+        return ResponseEntity.ok()
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, attachment(id, "csv"))
+                .body(out -> matchExporter.writeCsv(matches, out));
+    }
+
+    private UploadJob completedJob(String id, JobMode mode) {
+        UploadJob job = findJob(id);
+        if (job.getStatus() != JobStatus.COMPLETED) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "El trabajo no ha terminado correctamente: " + job.getStatus());
+        }
+        if (job.getMode() != mode) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "El trabajo se procesó en modo " + job.getMode());
+        }
+        return job;
+    }
+
+    private static String attachment(String id, String extension) {
+        return ContentDisposition.attachment().filename("duplicados-" + id + "." + extension).build().toString();
+    }
+
+    private UploadJob findJob(String id) {
+        return jobService.find(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Trabajo no encontrado: " + id));
+    }
+}
@@ -1,11 +1,18 @@
 package com.osmi.dev.duplicatefinder.controller;
 
-import com.osmi.dev.duplicatefinder.model.Contact;
-import com.osmi.dev.duplicatefinder.model.DuplicateMatch;
-import com.osmi.dev.duplicatefinder.service.ContactService;
+import com.osmi.dev.duplicatefinder.config.DuplicateFinderProperties;
+import com.osmi.dev.duplicatefinder.model.ContactFileFormat;
+import com.osmi.dev.duplicatefinder.model.JobMode;
+import com.osmi.dev.duplicatefinder.model.JobStatus;
+import com.osmi.dev.duplicatefinder.model.MatchPage;
+import com.osmi.dev.duplicatefinder.model.UploadJob;
+import com.osmi.dev.duplicatefinder.service.UploadJobService;
+import com.osmi.dev.duplicatefinder.service.UploadThrottledException;
 
 import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.multipart.MultipartFile;
@@ -13,17 +20,19 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import java.io.InputStream;
-import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @Controller
 public class UploadController {
 
     private static final Logger logger = LoggerFactory.getLogger(UploadController.class);
-    private final ContactService contactService;
+    private final UploadJobService jobService;
+    private final DuplicateFinderProperties.Results resultsConfig;
 
-    public UploadController(ContactService contactService) {
-        this.contactService = contactService;
+    public UploadController(UploadJobService jobService, DuplicateFinderProperties properties) {
+        this.jobService = jobService;
+        this.resultsConfig = properties.getResults();
     }
 
     /**
@@ -36,18 +45,19 @@ public class UploadController {
     }
 
     /**
-     * Recibe el archivo XLSX, lo parsea a contactos y ejecuta la detección de duplicados.
-     * Usa RedirectAttributes para mandar mensajes flash y resultados a la misma vista.
+     * Recibe el archivo XLSX o CSV y encola su procesamiento como trabajo asíncrono.
+     * El lector se elige por la extensión del archivo o, si no la tiene, por su tipo de contenido.
+     * Los resultados no viajan en la sesión: se redirige a la página del trabajo,
+     * que los lee del almacén de trabajos por páginas.
      *
      * Flujo:
-     * 1) Valida que el archivo exista y sea .xlsx
-     * 2) Lee el InputStream y crea la lista de Contact
-     * 3) Ejecuta findDuplicates
-     * 4) Guarda resultados/mensajes en flash y redirige a "/"
+     * 1) Valida que el archivo exista
+     * 2) Encola el trabajo (lectura + findDuplicates en segundo plano)
+     * 3) Redirige a "/resultados/{id}"
      *
-     * @param file archivo subido por el usuario (esperado .xlsx)
+     * @param file archivo subido por el usuario (.xlsx, .csv o .csv.gz)
      * @param redirectAttributes contenedor de mensajes flash para la redirección
-     * @return redirección al formulario
+     * @return redirección a la página de resultados o al formulario si hubo error
      */
     @PostMapping("/upload")
     public String handleFileUpload(@RequestParam("file") MultipartFile file, RedirectAttributes redirectAttributes) {
@@ -58,12 +68,14 @@ public class UploadController {
             return "redirect:/";
         }
 
-        try (InputStream inputStream = file.getInputStream()) {
-            List<Contact> contacts = contactService.parseContactsFromExcel(inputStream);
-            List<DuplicateMatch> duplicates = contactService.findDuplicates(contacts);
-
-            redirectAttributes.addFlashAttribute("duplicates", duplicates);
-            redirectAttributes.addFlashAttribute("successMessage", "Archivo procesado. Se encontraron " + duplicates.size() + " coincidencias.");
+        try {
+            ContactFileFormat format = ContactFileFormat.detect(file.getOriginalFilename(), file.getContentType());
+            UploadJob job = jobService.submit(file, JobMode.PAIRS, format);
+            return "redirect:/resultados/" + job.getId();
+        } catch (UploadThrottledException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "El servidor está ocupado con otros archivos, inténtalo en unos segundos.");
+        } catch (RejectedExecutionException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "Hay demasiados archivos en proceso, inténtalo más tarde.");
         } catch (Exception e) {
             logger.error("Error al procesar el archivo subido por el usuario.", e);
             redirectAttributes.addFlashAttribute("errorMessage", "Error al procesar el archivo. Asegúrate de que el formato sea correcto.");
@@ -71,4 +83,36 @@ public class UploadController {
 
         return "redirect:/";
     }
+
+    /**
+     * Muestra el estado del trabajo y, cuando termina, una página de sus coincidencias.
+     *
+     * @param id id del trabajo
+     * @param page número de página (empieza en 0)
+     * @param size coincidencias por página; se limita al máximo configurado
+     */
+    @GetMapping("/resultados/{id}")
+    public String showResults(@PathVariable String id,
+                              @RequestParam(defaultValue = "0") int page,
+                              @RequestParam(required = false) Integer size,
+                              Model model) {
+        Optional<UploadJob> found = jobService.find(id);
+        if (found.isEmpty()) {
+            model.addAttribute("errorMessage", "El trabajo no existe o ya no está disponible.");
+            return "upload";
+        }
+
+        UploadJob job = found.get();
+        model.addAttribute("job", job);
+        if (job.getStatus() == JobStatus.FAILED) {
+            model.addAttribute("errorMessage", job.getErrorMessage());
+        } else if (job.getStatus() == JobStatus.COMPLETED) {
+            int pageSize = Math.min(Math.max(size != null ? size : resultsConfig.getPageSize(), 1), resultsConfig.getMaxPageSize());
+            MatchPage matchPage = MatchPage.of(job.getResults(), page, pageSize);
+            model.addAttribute("matchPage", matchPage);
+            model.addAttribute("duplicates", matchPage.getContent());
+            model.addAttribute("successMessage", "Archivo procesado. Se encontraron " + job.getMatchesFound() + " coincidencias.");
+        }
+        return "upload";
+    }
 }
@@ -0,0 +1,35 @@
+package com.osmi.dev.duplicatefinder.model;
+
+import java.util.Locale;
+
+/**
+ * Formato del archivo de contactos subido.
+ */
+public enum ContactFileFormat {
+    /** Libro de Excel; se leen las hojas de {@code duplicatefinder.excel.sheets}, por defecto la primera. */
+    XLSX,
+    /** Texto separado por el delimitador de {@code duplicatefinder.csv.delimiter}, opcionalmente comprimido con gzip. */
+    CSV;
+
+    /**
+     * Deduce el formato por la extensión del nombre y, si no la hay, por el tipo de contenido.
+     * La extensión tiene prioridad porque algunos navegadores envían los .csv como
+     * application/vnd.ms-excel. De los comprimidos solo se reconoce .csv.gz por el nombre; otro
+     * .gz se decide por su tipo de contenido. Si no se reconoce ninguno se asume Excel.
+     */
+    public static ContactFileFormat detect(String filename, String contentType) {
+        String name = filename == null ? "" : filename.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv") || name.endsWith(".csv.gz")) {
+            return CSV;
+        }
+        if (name.endsWith(".xlsx")) {
+            return XLSX;
+        }
+        String type = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+        if (type.startsWith("text/csv") || type.startsWith("application/csv") || type.startsWith("text/plain")
+                || type.equals("application/gzip") || type.equals("application/x-gzip")) {
+            return CSV;
+        }
+        return XLSX;
+    }
+}
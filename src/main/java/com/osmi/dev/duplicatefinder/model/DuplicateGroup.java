@@ -0,0 +1,18 @@
+package com.osmi.dev.duplicatefinder.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Grupo de contactos duplicados entre sí (directamente o a través de otros miembros).
+ * El representante es el primer miembro en el orden del archivo.
+ */
+@Data
+@AllArgsConstructor
+public class DuplicateGroup {
+    private String representativeId;
+    private List<String> memberIds;
+    private int maxScore;
+}
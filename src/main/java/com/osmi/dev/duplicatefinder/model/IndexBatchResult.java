@@ -0,0 +1,18 @@
+package com.osmi.dev.duplicatefinder.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Resultado de añadir un lote al índice incremental: solo las coincidencias que aparecen
+ * con los contactos del lote.
+ */
+@Data
+@AllArgsConstructor
+public class IndexBatchResult {
+    private int rowsAdded;
+    private int totalContacts;
+    private List<DuplicateMatch> matches;
+}
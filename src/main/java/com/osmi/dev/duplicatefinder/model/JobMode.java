@@ -0,0 +1,11 @@
+package com.osmi.dev.duplicatefinder.model;
+
+/**
+ * Forma en la que un trabajo entrega sus resultados.
+ */
+public enum JobMode {
+    /** Un {@link DuplicateMatch} por cada par de contactos que coincide. */
+    PAIRS,
+    /** Un {@link DuplicateGroup} por cada conjunto de contactos conectados por coincidencias. */
+    GROUPS
+}
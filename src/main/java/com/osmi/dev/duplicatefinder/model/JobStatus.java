@@ -0,0 +1,15 @@
+package com.osmi.dev.duplicatefinder.model;
+
+/**
+ * Estados por los que pasa un trabajo de procesamiento de archivo.
+ */
+public enum JobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED;
+
+    public boolean isFinished() {
+        return this == COMPLETED || this == FAILED;
+    }
+}
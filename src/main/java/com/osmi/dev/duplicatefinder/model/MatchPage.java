@@ -0,0 +1,40 @@
+package com.osmi.dev.duplicatefinder.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Página de coincidencias para la vista HTML.
+ */
+@Data
+@AllArgsConstructor
+public class MatchPage {
+    private List<DuplicateMatch> content;
+    private int number;
+    private int size;
+    private long totalElements;
+    private int totalPages;
+
+    /**
+     * Recorta la página solicitada de la lista completa sin copiarla.
+     * Los números de página fuera de rango se ajustan al primero o al último.
+     */
+    public static MatchPage of(List<DuplicateMatch> matches, int page, int size) {
+        int total = matches.size();
+        int totalPages = Math.max(1, (total + size - 1) / size);
+        int number = Math.min(Math.max(page, 0), totalPages - 1);
+        int from = Math.min(number * size, total);
+        int to = Math.min(from + size, total);
+        return new MatchPage(matches.subList(from, to), number, size, total, totalPages);
+    }
+
+    public boolean hasPrevious() {
+        return number > 0;
+    }
+
+    public boolean hasNext() {
+        return number + 1 < totalPages;
+    }
+}
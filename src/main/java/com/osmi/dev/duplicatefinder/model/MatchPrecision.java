@@ -0,0 +1,21 @@
+package com.osmi.dev.duplicatefinder.model;
+
+/**
+ * Precisión de una coincidencia, con la etiqueta que se muestra en {@link DuplicateMatch}.
+ */
+public enum MatchPrecision {
+    /** Puntuación mayor que {@code duplicatefinder.scoring.alta-threshold} (85 por defecto). */
+    ALTA("Alta"),
+    /** Puntuación mayor que {@code duplicatefinder.scoring.baja-threshold} (20 por defecto). */
+    BAJA("Baja");
+
+    private final String label;
+
+    MatchPrecision(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,31 @@
+package com.osmi.dev.duplicatefinder.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Filtro de coincidencias que se aplica durante la puntuación, no después: los pares que no lo
+ * cumplen no llegan a guardarse y, si el umbral lo permite, ni siquiera se comparan.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MatchQuery {
+
+    /** Puntuación mínima (incluida); por debajo del umbral de precisión baja no tiene efecto. */
+    private int minScore;
+
+    /** Si se indica, solo se devuelven coincidencias con esta precisión. */
+    private MatchPrecision precision;
+
+    /** Si se indica, solo se devuelven las coincidencias con mayor puntuación, como máximo este número. */
+    private Integer limit;
+
+    /**
+     * Indica si la consulta devuelve lo mismo que una búsqueda completa.
+     */
+    public boolean isUnfiltered() {
+        return minScore <= 0 && precision == null && limit == null;
+    }
+}
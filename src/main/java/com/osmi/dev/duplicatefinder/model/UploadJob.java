@@ -0,0 +1,159 @@
+package com.osmi.dev.duplicatefinder.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Trabajo asíncrono de procesamiento de un archivo subido.
+ *
+ * Lo actualiza el hilo que ejecuta el trabajo (y los hilos de puntuación en paralelo) mientras
+ * las peticiones de consulta lo leen, por eso los contadores son LongAdder y el resto de campos
+ * mutables son volatile.
+ */
+public class UploadJob {
+
+    private final String id;
+    private final String fileName;
+    private final JobMode mode;
+    private final Instant createdAt = Instant.now();
+    private final LongAdder rowsParsed = new LongAdder();
+    private final LongAdder pairsCompared = new LongAdder();
+
+    private volatile JobStatus status = JobStatus.QUEUED;
+    private volatile boolean cached;
+    private volatile Instant finishedAt;
+    private volatile String errorMessage;
+    private volatile List<DuplicateMatch> results;
+    private volatile List<DuplicateGroup> groups;
+    private volatile String sourceKey;
+
+    public UploadJob(String id, String fileName) {
+        this(id, fileName, JobMode.PAIRS);
+    }
+
+    public UploadJob(String id, String fileName, JobMode mode) {
+        this.id = id;
+        this.fileName = fileName;
+        this.mode = mode;
+    }
+
+    public void markRunning() {
+        status = JobStatus.RUNNING;
+    }
+
+    public void complete(List<DuplicateMatch> results) {
+        this.results = results;
+        this.finishedAt = Instant.now();
+        this.status = JobStatus.COMPLETED;
+    }
+
+    public void completeWithGroups(List<DuplicateGroup> groups) {
+        this.groups = groups;
+        this.finishedAt = Instant.now();
+        this.status = JobStatus.COMPLETED;
+    }
+
+    public void fail(String errorMessage) {
+        this.errorMessage = errorMessage;
+        this.finishedAt = Instant.now();
+        this.status = JobStatus.FAILED;
+    }
+
+    /**
+     * Indica que los resultados se reutilizaron de un procesamiento anterior del mismo archivo.
+     */
+    public void markCached() {
+        cached = true;
+    }
+
+    /**
+     * Asocia el trabajo al contenido que procesa (SHA-256 y formato), para poder repetirlo después.
+     */
+    public void setSourceKey(String sourceKey) {
+        this.sourceKey = sourceKey;
+    }
+
+    public void addRowsParsed(long rows) {
+        rowsParsed.add(rows);
+    }
+
+    public void addPairsCompared(long pairs) {
+        pairsCompared.add(pairs);
+    }
+
+    // Getters
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public JobMode getMode() {
+        return mode;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public JobStatus getStatus() {
+        return status;
+    }
+
+    public boolean isCached() {
+        return cached;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public long getRowsParsed() {
+        return rowsParsed.sum();
+    }
+
+    public long getPairsCompared() {
+        return pairsCompared.sum();
+    }
+
+    /**
+     * Número de coincidencias encontradas, o null mientras el trabajo no haya terminado.
+     */
+    public Integer getMatchesFound() {
+        List<DuplicateMatch> current = results;
+        return current == null ? null : current.size();
+    }
+
+    /**
+     * Número de grupos encontrados en modo GROUPS, o null si no aplica o no ha terminado.
+     */
+    public Integer getGroupsFound() {
+        List<DuplicateGroup> current = groups;
+        return current == null ? null : current.size();
+    }
+
+    @JsonIgnore
+    public String getSourceKey() {
+        return sourceKey;
+    }
+
+    @JsonIgnore
+    public List<DuplicateMatch> getResults() {
+        return results;
+    }
+
+    @JsonIgnore
+    public List<DuplicateGroup> getGroups() {
+        return groups;
+    }
+}
@@ -0,0 +1,160 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Índice de bloqueo sobre una lista de contactos.
+ *
+ * Agrupa las filas por el valor de cada regla de igualdad o prefijo (por defecto, email y
+ * código postal más apellido), y por la clave fonética cuando la comparación aproximada está
+ * activada. Dos contactos solo pueden puntuar si comparten alguna de estas claves, por lo que
+ * basta con comparar cada fila contra los miembros de sus bloques en lugar de contra toda la lista.
+ */
+class BlockingIndex {
+
+    private static final int[] EMPTY = new int[0];
+
+    // [clave][fila] -> bloque (filas ordenadas de forma ascendente) al que pertenece la fila
+    private final int[][][] blockOf;
+
+    private BlockingIndex(int[][][] blockOf) {
+        this.blockOf = blockOf;
+    }
+
+    /**
+     * Construye el índice a partir de las claves precalculadas. Como los ids de clave son
+     * densos, los bloques se arman por conteo, sin tablas hash.
+     */
+    static BlockingIndex build(ContactKeys keys) {
+        int[] columns = new int[keys.blockingColumns()];
+        for (int column = 0; column < columns.length; column++) {
+            columns[column] = column;
+        }
+        return build(keys, columns);
+    }
+
+    /**
+     * Construye el índice solo con las columnas de clave indicadas, para cuando los pares que
+     * solo comparten las demás no pueden alcanzar la puntuación buscada.
+     */
+    static BlockingIndex build(ContactKeys keys, int... columns) {
+        int[][][] blockOf = new int[columns.length][][];
+        for (int k = 0; k < blockOf.length; k++) {
+            int column = columns[k];
+            blockOf[k] = blocks(keys.blockingColumn(column), keys.size(), keys.blockingKeyCount(column));
+        }
+        return new BlockingIndex(blockOf);
+    }
+
+    private static int[][] blocks(int[] keyOf, int size, int keyCount) {
+        int[] counts = new int[keyCount];
+        for (int row = 0; row < size; row++) {
+            int key = keyOf[row];
+            if (key != ContactKeys.NO_KEY) {
+                counts[key]++;
+            }
+        }
+
+        // Los bloques de un solo miembro no generan candidatos: no se reserva arreglo para ellos
+        int[][] blocks = new int[keyCount][];
+        for (int key = 0; key < keyCount; key++) {
+            blocks[key] = counts[key] > 1 ? new int[counts[key]] : EMPTY;
+            counts[key] = 0;
+        }
+
+        int[][] blockOf = new int[size][];
+        for (int row = 0; row < size; row++) {
+            int key = keyOf[row];
+            if (key == ContactKeys.NO_KEY) {
+                blockOf[row] = EMPTY;
+                continue;
+            }
+            int[] block = blocks[key];
+            if (block.length > 0) {
+                block[counts[key]++] = row;
+            }
+            blockOf[row] = block;
+        }
+        return blockOf;
+    }
+
+    /**
+     * Crea el estado de recorrido que usa {@link #forEachCandidateAfter}. Se crea uno por tramo
+     * o por hilo y se reutiliza para todas sus filas, así que puntuar no reserva memoria por fila.
+     */
+    Cursor newCursor() {
+        return new Cursor(blockOf.length);
+    }
+
+    /**
+     * Recorre, en orden ascendente y sin repetir, las filas posteriores a {@code row}
+     * que comparten al menos una clave de bloqueo con ella.
+     *
+     * @param cursor estado de recorrido de este índice; no se puede usar desde dos hilos a la vez
+     * @return número de candidatos visitados
+     */
+    int forEachCandidateAfter(int row, Cursor cursor, IntConsumer action) {
+        int[][] blocks = cursor.blocks;
+        int[] position = cursor.position;
+        int[] end = cursor.end;
+        for (int k = 0; k < blocks.length; k++) {
+            blocks[k] = blockOf[k][row];
+            position[k] = firstAfter(blocks[k], row);
+            end[k] = blocks[k].length;
+        }
+        return forEachInUnion(blocks, position, end, action);
+    }
+
+    /**
+     * Recorre en orden ascendente y sin repetir la unión de los tramos
+     * {@code blocks[k][position[k]..end[k])}, cada uno ordenado de forma ascendente.
+     * Avanza {@code position} a medida que consume filas.
+     *
+     * @return número de filas visitadas
+     */
+    static int forEachInUnion(int[][] blocks, int[] position, int[] end, IntConsumer action) {
+        int keys = blocks.length;
+        int visited = 0;
+
+        // Mezcla de listas ordenadas: se toma la fila menor y se avanza en todas las que la contienen
+        while (true) {
+            int next = Integer.MAX_VALUE;
+            for (int k = 0; k < keys; k++) {
+                if (position[k] < end[k] && blocks[k][position[k]] < next) {
+                    next = blocks[k][position[k]];
+                }
+            }
+            if (next == Integer.MAX_VALUE) {
+                return visited;
+            }
+            for (int k = 0; k < keys; k++) {
+                if (position[k] < end[k] && blocks[k][position[k]] == next) {
+                    position[k]++;
+                }
+            }
+            action.accept(next);
+            visited++;
+        }
+    }
+
+    private static int firstAfter(int[] rows, int row) {
+        int pos = Arrays.binarySearch(rows, row);
+        return pos >= 0 ? pos + 1 : -pos - 1;
+    }
+
+    /**
+     * Bloques, posición y fin de cada clave durante un recorrido de {@link #forEachInUnion}.
+     */
+    static final class Cursor {
+        final int[][] blocks;
+        final int[] position;
+        final int[] end;
+
+        Cursor(int keys) {
+            this.blocks = new int[keys][];
+            this.position = new int[keys];
+            this.end = new int[keys];
+        }
+    }
+}
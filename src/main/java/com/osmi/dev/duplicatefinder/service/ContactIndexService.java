@@ -0,0 +1,102 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.model.Contact;
+import com.osmi.dev.duplicatefinder.model.ContactFileFormat;
+import com.osmi.dev.duplicatefinder.model.DuplicateMatch;
+import com.osmi.dev.duplicatefinder.model.IndexBatchResult;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Índice de contactos en memoria que se alimenta por lotes.
+ *
+ * Permite subir una lista maestra una vez y después solo los archivos de cambios: cada lote se
+ * compara contra lo ya indexado (y contra sí mismo) y se devuelven únicamente las coincidencias
+ * nuevas, sin recalcular las anteriores. Un contacto cuyo id ya está indexado es una versión
+ * actualizada: sustituye a la anterior y se compara con el resto con sus datos nuevos, nunca
+ * consigo mismo. Los lotes se aplican de uno en uno, con un
+ * ReentrantLock en lugar de synchronized para que los hilos virtuales que esperan su turno no
+ * bloqueen a su hilo portador.
+ */
+@Service
+public class ContactIndexService {
+
+    private final ContactService contactService;
+    private final UploadJobService uploads;
+    private final ReentrantLock lock = new ReentrantLock();
+    private IncrementalIndex index;
+
+    public ContactIndexService(ContactService contactService, UploadJobService uploads) {
+        this.contactService = contactService;
+        this.uploads = uploads;
+        this.index = contactService.newReplacingIndex();
+    }
+
+    /**
+     * Añade los contactos en orden y devuelve las coincidencias que generan, ordenadas por el
+     * contacto nuevo y, dentro de él, por el contacto con el que coincide.
+     */
+    public List<DuplicateMatch> addBatch(List<Contact> contacts) {
+        lock.lock();
+        try {
+            List<DuplicateMatch> matches = new ArrayList<>();
+            for (Contact contact : contacts) {
+                index.add(contact, matches::add);
+            }
+            return matches;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lee un archivo de {@code size} bytes y lo añade como un lote. Antes de leerlo reserva su
+     * memoria en el mismo presupuesto que los trabajos de subida, y la lectura se hace antes de
+     * tomar el índice, para no bloquear otros lotes mientras se procesa el archivo.
+     *
+     * @throws UploadThrottledException si no se libera presupuesto suficiente a tiempo
+     */
+    public IndexBatchResult addBatch(InputStream inputStream, ContactFileFormat format, long size) throws Exception {
+        UploadAdmission.Permit permit = uploads.admit(size);
+        try {
+            List<Contact> contacts = contactService.parseContacts(inputStream, format);
+            lock.lock();
+            try {
+                List<DuplicateMatch> matches = addBatch(contacts);
+                return new IndexBatchResult(contacts.size(), index.size(), matches);
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            permit.release();
+        }
+    }
+
+    /**
+     * Número de contactos indexados.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Vacía el índice.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            index = contactService.newReplacingIndex();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
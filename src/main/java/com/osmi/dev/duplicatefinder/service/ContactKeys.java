@@ -0,0 +1,152 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.model.Contact;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Claves de comparación precalculadas para una lista de contactos, en columnas.
+ *
+ * Cada contacto se normaliza una sola vez. Los valores de las reglas de igualdad y prefijo se
+ * sustituyen por identificadores de diccionario: dos contactos coinciden en una regla si y solo
+ * si tienen el mismo identificador, así que puntuar un par compara enteros, sin tocar cadenas ni
+ * reservar memoria. Los identificadores son densos (0..count-1), lo que permite indexar por ellos.
+ * Las reglas de Levenshtein guardan el texto normalizado. Se pueden añadir contactos al final
+ * sin recalcular los anteriores.
+ */
+final class ContactKeys {
+
+    /** Identificador de los contactos que no tienen valor para una clave. */
+    static final int NO_KEY = -1;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final ScoringRules rules;
+
+    // [regla de clave][fila] -> id del valor de la regla
+    int[][] keyColumns;
+    // [regla de Levenshtein][fila] -> texto normalizado
+    String[][] textColumns;
+    // Fila -> id de la clave fonética; null si no se bloquea por ella
+    int[] phoneticKey;
+
+    // Las columnas pueden tener más capacidad que filas ocupadas: solo valen las filas < size
+    private int size;
+    private int capacity;
+
+    private final List<Map<String, Integer>> dictionaries = new ArrayList<>();
+    private final Map<String, Integer> phonetics;
+
+    /**
+     * Crea unas columnas vacías a las que se añaden contactos con {@link #add(Contact)}.
+     *
+     * @param rules        reglas que fijan qué columnas se preparan
+     * @param expectedRows capacidad inicial de las columnas
+     */
+    ContactKeys(ScoringRules rules, int expectedRows) {
+        this.rules = rules;
+        this.capacity = Math.max(expectedRows, MIN_CAPACITY);
+        this.keyColumns = new int[rules.keyRuleCount()][capacity];
+        this.textColumns = new String[rules.textRuleCount()][capacity];
+        for (int r = 0; r < rules.keyRuleCount(); r++) {
+            dictionaries.add(new HashMap<>());
+        }
+        this.phoneticKey = rules.phoneticBlocking() ? new int[capacity] : null;
+        this.phonetics = rules.phoneticBlocking() ? new HashMap<>() : null;
+    }
+
+    static ContactKeys of(List<Contact> contacts, ScoringRules rules) {
+        ContactKeys keys = new ContactKeys(rules, contacts.size());
+        for (Contact contact : contacts) {
+            keys.add(contact);
+        }
+        return keys;
+    }
+
+    /**
+     * Normaliza el contacto y lo añade como última fila. Los diccionarios se conservan entre
+     * llamadas, así que un mismo valor recibe siempre el mismo id.
+     *
+     * @return fila asignada al contacto
+     */
+    int add(Contact contact) {
+        if (size == capacity) {
+            grow();
+        }
+        int row = size;
+        for (int r = 0; r < keyColumns.length; r++) {
+            keyColumns[r][row] = intern(dictionaries.get(r), rules.keyValue(r, contact));
+        }
+        for (int t = 0; t < textColumns.length; t++) {
+            textColumns[t][row] = rules.textValue(t, contact);
+        }
+        if (phoneticKey != null) {
+            phoneticKey[row] = intern(phonetics, phoneticValue(contact, ContactNormalizer.text(contact.getNombre())));
+        }
+        size++;
+        return row;
+    }
+
+    private void grow() {
+        capacity *= 2;
+        for (int r = 0; r < keyColumns.length; r++) {
+            keyColumns[r] = Arrays.copyOf(keyColumns[r], capacity);
+        }
+        for (int t = 0; t < textColumns.length; t++) {
+            textColumns[t] = Arrays.copyOf(textColumns[t], capacity);
+        }
+        if (phoneticKey != null) {
+            phoneticKey = Arrays.copyOf(phoneticKey, capacity);
+        }
+    }
+
+    /**
+     * Código fonético del apellido más la inicial del nombre, o null si falta el apellido.
+     */
+    static String phoneticValue(Contact contact, String normalizedNombre) {
+        String apellido = ContactNormalizer.phonetic(contact.getApellido());
+        if (apellido == null) {
+            return null;
+        }
+        return normalizedNombre == null ? apellido : apellido + '\u0000' + normalizedNombre.charAt(0);
+    }
+
+    static int intern(Map<String, Integer> dictionary, String value) {
+        if (value == null) {
+            return NO_KEY;
+        }
+        Integer id = dictionary.putIfAbsent(value, dictionary.size());
+        return id != null ? id : dictionary.size() - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Número de columnas usadas como clave de bloqueo: una por regla de igualdad o prefijo,
+     * y la clave fonética si la comparación aproximada está activada.
+     */
+    int blockingColumns() {
+        return keyColumns.length + (phoneticKey == null ? 0 : 1);
+    }
+
+    /**
+     * Columna de bloqueo (fila -> id de clave). El arreglo se sustituye al crecer, por lo que
+     * hay que volver a pedirlo después de cada {@link #add(Contact)}.
+     */
+    int[] blockingColumn(int column) {
+        return column < keyColumns.length ? keyColumns[column] : phoneticKey;
+    }
+
+    /**
+     * Número de ids distintos de la columna de bloqueo; los ids van de 0 a este valor menos uno.
+     */
+    int blockingKeyCount(int column) {
+        return column < keyColumns.length ? dictionaries.get(column).size() : phonetics.size();
+    }
+}
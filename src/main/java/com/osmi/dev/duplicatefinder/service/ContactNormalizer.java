@@ -0,0 +1,125 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalización de los campos que se comparan al buscar duplicados. Se aplica una sola vez
+ * por contacto para que la comparación de pares no repita este trabajo.
+ */
+final class ContactNormalizer {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private ContactNormalizer() {
+    }
+
+    /**
+     * Email sin espacios alrededor y en minúsculas; null si está vacío.
+     */
+    static String email(String email) {
+        if (email == null || email.isBlank()) {
+            return null;
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Apellido sin acentos, en minúsculas y sin espacios alrededor ("  García" → "garcia").
+     */
+    static String apellido(String apellido) {
+        if (apellido == null) {
+            return null;
+        }
+        return foldAccents(apellido.trim()).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Código postal sin espacios ("28 080 " → "28080").
+     */
+    static String codigoPostal(String codigoPostal) {
+        if (codigoPostal == null) {
+            return null;
+        }
+        return WHITESPACE.matcher(codigoPostal).replaceAll("");
+    }
+
+    /**
+     * Texto libre (nombre, dirección) sin acentos, en minúsculas y con los espacios colapsados;
+     * null si está vacío.
+     */
+    static String text(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return WHITESPACE.matcher(foldAccents(value.trim())).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Código fonético aproximado para apellidos en español: unifica las letras que suenan igual
+     * (b/v, c/k/q/s/z, g/j, ll/y), elimina la h muda y las letras repetidas
+     * ("Gonzalez" y "Gonsales" → "gonsales"). Devuelve null si no queda ninguna letra.
+     */
+    static String phonetic(String value) {
+        if (value == null) {
+            return null;
+        }
+        String letters = foldAccents(value).toLowerCase(Locale.ROOT);
+        StringBuilder code = new StringBuilder(letters.length());
+        for (int i = 0; i < letters.length(); i++) {
+            char ch = letters.charAt(i);
+            char next = i + 1 < letters.length() ? letters.charAt(i + 1) : ' ';
+            char sound;
+            switch (ch) {
+                case 'b', 'v', 'w' -> sound = 'b';
+                case 'z' -> sound = 's';
+                case 'c' -> {
+                    if (next == 'h') {
+                        sound = 'x';
+                        i++;
+                    } else {
+                        sound = next == 'e' || next == 'i' ? 's' : 'k';
+                    }
+                }
+                case 'q' -> {
+                    sound = 'k';
+                    if (next == 'u') {
+                        i++;
+                    }
+                }
+                case 'g' -> sound = next == 'e' || next == 'i' ? 'j' : 'g';
+                case 'l' -> {
+                    sound = next == 'l' ? 'y' : 'l';
+                    if (next == 'l') {
+                        i++;
+                    }
+                }
+                case 'h' -> {
+                    continue;
+                }
+                default -> {
+                    if (ch < 'a' || ch > 'z') {
+                        continue;
+                    }
+                    sound = ch;
+                }
+            }
+            if (code.isEmpty() || code.charAt(code.length() - 1) != sound) {
+                code.append(sound);
+            }
+        }
+        return code.isEmpty() ? null : code.toString();
+    }
+
+    static String foldAccents(String value) {
+        // La mayoría de valores son ASCII: se evita descomponer la cadena cuando no hace falta
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0x7F) {
+                return DIACRITICS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("");
+            }
+        }
+        return value;
+    }
+}
@@ -1,108 +1,600 @@
 package com.osmi.dev.duplicatefinder.service;
 
+import com.osmi.dev.duplicatefinder.config.DuplicateFinderProperties;
 import com.osmi.dev.duplicatefinder.model.Contact;
+import com.osmi.dev.duplicatefinder.model.ContactFileFormat;
+import com.osmi.dev.duplicatefinder.model.DuplicateGroup;
 import com.osmi.dev.duplicatefinder.model.DuplicateMatch;
-import org.apache.commons.text.similarity.LevenshteinDistance;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import com.osmi.dev.duplicatefinder.model.JobMode;
+import com.osmi.dev.duplicatefinder.model.MatchPrecision;
+import com.osmi.dev.duplicatefinder.model.MatchQuery;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 public class ContactService {
 
+    /** Filas por tarea a partir de las cuales ya no se divide el trabajo en paralelo. */
+    static final int PARALLEL_CHUNK_ROWS = 1024;
+
+    /** Marca de fin de lectura que el hilo lector deja en la cola del modo en tubería. */
+    private static final Contact END_OF_INPUT = new Contact();
+
+    private final ExcelContactReader excelReader;
+    private final CsvContactReader csvReader;
+    private final ForkJoinPool scoringPool;
+    private final ScoringRules rules;
+    private final DuplicateFinderMetrics metrics;
+    private final int pipelineQueueCapacity;
+    private final int sortRunSize;
+    private final int maxBlockRows;
+    private final String readerFingerprint;
+    private final Semaphore scoringPermits;
+
+    public ContactService() {
+        this(new DuplicateFinderProperties());
+    }
+
+    public ContactService(DuplicateFinderProperties properties) {
+        this(properties, DuplicateFinderMetrics.noop());
+    }
+
+    @Autowired
+    public ContactService(DuplicateFinderProperties properties, DuplicateFinderMetrics metrics) {
+        this.metrics = metrics;
+        this.excelReader = new ExcelContactReader(properties.getExcel());
+        this.csvReader = new CsvContactReader(properties.getCsv());
+        this.pipelineQueueCapacity = properties.getMatching().getPipelineQueueCapacity();
+        this.sortRunSize = properties.getMatching().getSortRunSize();
+        this.maxBlockRows = properties.getMatching().getMaxBlockRows();
+        this.readerFingerprint = properties.getExcel() + "|" + properties.getCsv();
+        this.scoringPermits = new Semaphore(properties.getMatching().effectiveMaxConcurrentScoring(), true);
+        int parallelism = properties.getMatching().effectiveParallelism();
+        this.scoringPool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        this.rules = ScoringRules.compile(properties);
+    }
+
+    /**
+     * Describe la configuración que afecta a la puntuación; dos ejecuciones con la misma huella
+     * y los mismos contactos producen el mismo resultado.
+     */
+    public String scoringFingerprint() {
+        return rules.fingerprint();
+    }
+
+    /**
+     * Describe la configuración de lectura; el mismo archivo leído con la misma huella produce
+     * los mismos contactos.
+     */
+    public String readerFingerprint() {
+        return readerFingerprint;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (scoringPool != null) {
+            scoringPool.shutdown();
+        }
+    }
+
     /**
      * Procesa una lista de contactos para encontrar posibles duplicados.
+     *
+     * Cada contacto se normaliza una sola vez (email en minúsculas y sin espacios, apellido sin
+     * acentos ni mayúsculas, código postal sin espacios) y solo se puntúan los pares que comparten
+     * una clave de bloqueo (por defecto, email o código postal más apellido); el resto tendría
+     * puntuación 0. El resultado es el mismo que comparar todos contra todos, en el mismo orden,
+     * pero el coste crece casi linealmente. Las reglas de Levenshtein, como las de la comparación
+     * aproximada, suman puntos a los pares candidatos.
+     *
+     * Con paralelismo mayor que 1 las filas se reparten en tramos entre los hilos del pool;
+     * cada tramo acumula sus coincidencias por separado y se concatenan en orden al final.
+     *
+     * La lista devuelta es de solo lectura y guarda las coincidencias en arreglos de enteros;
+     * cada {@link DuplicateMatch} se crea al acceder a su posición.
      */
     public List<DuplicateMatch> findDuplicates(List<Contact> contacts) {
-        List<DuplicateMatch> matches = new ArrayList<>();
-        for (int i = 0; i < contacts.size(); i++) {
-            for (int j = i + 1; j < contacts.size(); j++) {
-                Contact c1 = contacts.get(i);
-                Contact c2 = contacts.get(j);
-                int score = calculateScore(c1, c2);
-
-                if (score > 85) {
-                    matches.add(new DuplicateMatch(c1.getId(), c2.getId(), "Alta", score));
-                } else if (score > 20) {
-                    matches.add(new DuplicateMatch(c1.getId(), c2.getId(), "Baja", score));
+        return findDuplicates(contacts, ProgressListener.NONE);
+    }
+
+    /**
+     * Igual que {@link #findDuplicates(List)}, informando al listener de los pares comparados.
+     */
+    public List<DuplicateMatch> findDuplicates(List<Contact> contacts, ProgressListener listener) {
+        return findDuplicates(contacts, new MatchQuery(), listener);
+    }
+
+    /**
+     * Busca solo las coincidencias que cumplen la consulta, filtrando mientras se puntúa.
+     *
+     * Con un mínimo que un par no puede alcanzar sin coincidir en cierta regla (por ejemplo, el
+     * email al pedir solo precisión alta) el índice se construye únicamente con el bloque de esa
+     * regla y los pares que solo comparten otras claves no llegan a compararse. Con límite, las
+     * coincidencias se acumulan en un montículo acotado y se devuelven de mayor a menor
+     * puntuación; sin él, en el mismo orden que {@link #findDuplicates(List)}.
+     */
+    public List<DuplicateMatch> findDuplicates(List<Contact> contacts, MatchQuery query, ProgressListener listener) {
+        MatchStore matches = withScoringPermit(() -> metrics.matchTimer(JobMode.PAIRS)
+                .record(() -> scoreAll(contacts, query, metrics.tracking(listener))));
+        metrics.matchesFound(matches.count(MatchPrecision.ALTA), matches.count(MatchPrecision.BAJA));
+        return matches;
+    }
+
+    private MatchStore scoreAll(List<Contact> contacts, MatchQuery query, ProgressListener listener) {
+        int minScore = Math.max(query.getMinScore(),
+                (query.getPrecision() == MatchPrecision.ALTA ? rules.altaThreshold() : rules.bajaThreshold()) + 1);
+        int maxScore = query.getPrecision() == MatchPrecision.BAJA ? rules.altaThreshold() : Integer.MAX_VALUE;
+
+        ContactKeys keys = ContactKeys.of(contacts, rules);
+        int required = rules.requiredKeyRule(minScore);
+        BlockingIndex index = required >= 0 ? BlockingIndex.build(keys, required) : BlockingIndex.build(keys);
+        Scoring scoring = new Scoring(keys, index, minScore, maxScore);
+
+        String[] ids = new String[contacts.size()];
+        for (int row = 0; row < ids.length; row++) {
+            ids[row] = contacts.get(row).getId();
+        }
+        if (query.getLimit() == null) {
+            return collect(scoring, contacts.size(), () -> new MatchStore(ids), MatchStore::append, listener);
+        }
+        int limit = query.getLimit();
+        return collect(scoring, contacts.size(), () -> new TopMatchHeap(limit), TopMatchHeap::addAll, listener)
+                .toStore(ids);
+    }
+
+    /**
+     * Claves, índice y rango de puntuaciones [minScore, maxScore] que se aceptan.
+     */
+    private record Scoring(ContactKeys keys, BlockingIndex index, int minScore, int maxScore) {
+    }
+
+    /**
+     * Ejecuta una fase de puntuación cuando hay turno libre. Con muchas peticiones en hilos
+     * virtuales, así solo puntúan a la vez tantas búsquedas como se haya configurado y el resto
+     * espera sin ocupar un hilo portador.
+     */
+    private <T> T withScoringPermit(Supplier<T> scoring) {
+        acquireScoringPermit();
+        try {
+            return scoring.get();
+        } finally {
+            scoringPermits.release();
+        }
+    }
+
+    private void acquireScoringPermit() {
+        try {
+            scoringPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Búsqueda cancelada mientras esperaba turno");
+        }
+    }
+
+    /**
+     * Puntúa todas las filas, en el hilo actual o repartidas en el pool, y devuelve el colector
+     * resultante de unir los de cada tramo en orden.
+     */
+    private <C extends MatchCollector> C collect(Scoring scoring, int rows, Supplier<C> collectors,
+                                                 BiConsumer<C, C> merge, ProgressListener listener) {
+        if (scoringPool == null || rows <= PARALLEL_CHUNK_ROWS) {
+            C matches = collectors.get();
+            collectMatches(scoring, 0, rows, matches, listener);
+            return matches;
+        }
+        return scoringPool.invoke(new ScoringTask<>(scoring, 0, rows, collectors, merge, listener));
+    }
+
+    /**
+     * Busca duplicados en un archivo Excel leyendo y puntuando a la vez.
+     *
+     * Un hilo lee el archivo y deja cada contacto en una cola acotada; el hilo que llama los
+     * toma de uno en uno, los añade a un índice incremental y entrega cada coincidencia en cuanto
+     * aparece. Nunca se construye la lista completa de contactos y, si el indexador va más lento,
+     * la cola llena frena al lector. Se obtienen los mismos pares que con
+     * {@link #findDuplicates(List)}, pero ordenados por el segundo contacto del par.
+     */
+    public void findDuplicatesPipelined(Path file, Consumer<DuplicateMatch> sink, ProgressListener listener) throws Exception {
+        findDuplicatesPipelined(file, ContactFileFormat.XLSX, sink, listener);
+    }
+
+    /**
+     * Igual que {@link #findDuplicatesPipelined(Path, Consumer, ProgressListener)} para un archivo
+     * del formato indicado.
+     */
+    public void findDuplicatesPipelined(Path file, ContactFileFormat format, Consumer<DuplicateMatch> sink,
+                                        ProgressListener listener) throws Exception {
+        IncrementalIndex index = newIncrementalIndex();
+        List<String> ids = index.ids();
+        runPipeline(file, format, index, (origen, coincidencia, score, precision) -> {
+            DuplicateMatch match = new DuplicateMatch(ids.get(origen), ids.get(coincidencia), precision.getLabel(), score);
+            metrics.matchFound(match);
+            sink.accept(match);
+        }, listener);
+    }
+
+    /**
+     * Igual que {@link #findDuplicatesPipelined(Path, ContactFileFormat, Consumer, ProgressListener)},
+     * guardando las coincidencias por filas en un {@link MatchStore}, con la misma memoria por
+     * coincidencia que {@link #findDuplicates(List)}.
+     */
+    public List<DuplicateMatch> findDuplicatesPipelined(Path file, ContactFileFormat format,
+                                                        ProgressListener listener) throws Exception {
+        IncrementalIndex index = newIncrementalIndex();
+        MatchStore matches = new MatchStore(index.ids());
+        runPipeline(file, format, index, matches, listener);
+        metrics.matchesFound(matches.count(MatchPrecision.ALTA), matches.count(MatchPrecision.BAJA));
+        return matches;
+    }
+
+    private void runPipeline(Path file, ContactFileFormat format, IncrementalIndex index, MatchCollector matches,
+                             ProgressListener listener) throws Exception {
+        BlockingQueue<Contact> queue = new ArrayBlockingQueue<>(pipelineQueueCapacity);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                parseContacts(file, format, contact -> {
+                    try {
+                        queue.put(contact);
+                    } catch (InterruptedException e) {
+                        throw new CancellationException("Lectura cancelada");
+                    }
+                    listener.rowParsed();
+                });
+            } catch (Exception e) {
+                failure.set(e);
+            } finally {
+                try {
+                    queue.put(END_OF_INPUT);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                 }
             }
+        }, "contact-reader");
+        reader.start();
+
+        ProgressListener tracked = metrics.tracking(listener);
+        boolean completed = false;
+        boolean permitted = false;
+        try {
+            // El indexador puntúa en el hilo del trabajo, así que también necesita turno; el
+            // lector ya va llenando la cola mientras espera
+            acquireScoringPermit();
+            permitted = true;
+            long compared = 0;
+            for (Contact contact = queue.take(); contact != END_OF_INPUT; contact = queue.take()) {
+                compared += index.add(contact, matches);
+                if (index.size() % PARALLEL_CHUNK_ROWS == 0) {
+                    tracked.pairsCompared(compared);
+                    compared = 0;
+                }
+            }
+            tracked.pairsCompared(compared);
+            completed = true;
+        } finally {
+            if (permitted) {
+                scoringPermits.release();
+            }
+            if (!completed) {
+                // El indexador falló: se detiene al lector y se le hace sitio para la marca de fin
+                reader.interrupt();
+                queue.clear();
+            }
+            reader.join();
         }
-        return matches;
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    /**
+     * Busca duplicados en un archivo de cualquier tamaño con memoria acotada.
+     *
+     * Los contactos no se guardan: por cada uno se escriben sus claves de bloqueo a disco, se
+     * ordenan externamente en tramos de tamaño fijo y se puntúan los contactos de cada bloque al
+     * mezclar los tramos. Se obtienen los mismos pares y en el mismo orden que con
+     * {@link #findDuplicates(List)}. De cada bloque se tienen en memoria como mucho
+     * {@code max-block-rows} registros; los bloques mayores se puntúan por tramos desde disco.
+     */
+    public void findDuplicatesOutOfCore(Path file, ContactFileFormat format, Consumer<DuplicateMatch> sink,
+                                        ProgressListener listener) throws Exception {
+        findDuplicatesOutOfCore(file, format, (origenId, coincidenciaId, score, precision) -> {
+            DuplicateMatch match = new DuplicateMatch(origenId, coincidenciaId, precision.getLabel(), score);
+            metrics.matchFound(match);
+            sink.accept(match);
+        }, listener);
     }
 
     /**
-     * Calcula una puntuación de similitud entre dos contactos.
+     * Igual que {@link #findDuplicatesOutOfCore(Path, ContactFileFormat, Consumer, ProgressListener)},
+     * pero guarda las coincidencias en un archivo temporal en lugar de en el heap, de modo que el
+     * resultado tampoco crece con el número de coincidencias. La lista devuelta lee el archivo al
+     * recorrerla y lo borra al cerrarla con {@link AutoCloseable#close()}.
      */
-    private int calculateScore(Contact c1, Contact c2) {
-        int score = 0;
-        if (c1.getEmail() != null && !c1.getEmail().isBlank() && c1.getEmail().equalsIgnoreCase(c2.getEmail())) {
-            score += 90;
+    public List<DuplicateMatch> findDuplicatesOutOfCore(Path file, ContactFileFormat format,
+                                                        ProgressListener listener) throws Exception {
+        long[] found = new long[MatchPrecision.values().length];
+        try (SpilledMatchList.Writer writer = new SpilledMatchList.Writer()) {
+            findDuplicatesOutOfCore(file, format, (origenId, coincidenciaId, score, precision) -> {
+                writer.add(origenId, coincidenciaId, score, precision);
+                found[precision.ordinal()]++;
+            }, listener);
+            metrics.matchesFound(found[MatchPrecision.ALTA.ordinal()], found[MatchPrecision.BAJA.ordinal()]);
+            return writer.finish();
         }
-        if (c1.getCodigoPostal() != null && c1.getCodigoPostal().equals(c2.getCodigoPostal()) &&
-                c1.getApellido() != null && c1.getApellido().equalsIgnoreCase(c2.getApellido())) {
-            score += 50;
+    }
+
+    private void findDuplicatesOutOfCore(Path file, ContactFileFormat format, ExternalSortMatcher.PairSink sink,
+                                         ProgressListener listener) throws Exception {
+        try (ExternalSortMatcher matcher = new ExternalSortMatcher(rules, sortRunSize, maxBlockRows)) {
+            parseContacts(file, format, contact -> {
+                try {
+                    matcher.add(contact);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                listener.rowParsed();
+            });
+            withScoringPermit(() -> {
+                try {
+                    matcher.emitMatches(sink, metrics.tracking(listener));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return null;
+            });
         }
-        return score;
     }
 
     /**
-     * Lee un archivo Excel y lo convierte en una lista de objetos Contact.
+     * Agrupa los contactos duplicados en lugar de listar cada par.
+     *
+     * Cada par que supera el umbral une a sus dos contactos en una estructura union-find, de modo
+     * que un grupo de k contactos iguales ocupa O(k) y no O(k²). Se devuelven solo los grupos con
+     * más de un miembro, ordenados por la primera aparición en el archivo.
      */
-    public List<Contact> parseContactsFromExcel(InputStream inputStream) throws Exception {
-        List<Contact> contacts = new ArrayList<>();
-        try (Workbook workbook = new XSSFWorkbook(inputStream)) {
-            Sheet sheet = workbook.getSheetAt(0);
-            Iterator<Row> rows = sheet.iterator();
-
-            // Omitir las dos primeras filas (cabeceras)
-            if (rows.hasNext()) rows.next();
-            if (rows.hasNext()) rows.next();
-
-            while (rows.hasNext()) {
-                Row currentRow = rows.next();
-                Contact contact = new Contact();
-
-                // Extraer datos de las celdas de forma segura
-                contact.setId(getCellValueAsString(currentRow.getCell(0)));
-                contact.setNombre(getCellValueAsString(currentRow.getCell(1)));
-                contact.setApellido(getCellValueAsString(currentRow.getCell(2)));
-                contact.setEmail(getCellValueAsString(currentRow.getCell(3)));
-                contact.setCodigoPostal(getCellValueAsString(currentRow.getCell(4)));
-                contact.setDireccion(getCellValueAsString(currentRow.getCell(5)));
-
-                // Solo agregar si el contacto tiene un ID
-                if (contact.getId() != null && !contact.getId().isBlank()) {
-                    contacts.add(contact);
+    public List<DuplicateGroup> findDuplicateGroups(List<Contact> contacts, ProgressListener listener) {
+        return withScoringPermit(() -> metrics.matchTimer(JobMode.GROUPS)
+                .record(() -> groupAll(contacts, metrics.tracking(listener))));
+    }
+
+    private List<DuplicateGroup> groupAll(List<Contact> contacts, ProgressListener listener) {
+        ContactKeys keys = ContactKeys.of(contacts, rules);
+        BlockingIndex index = BlockingIndex.build(keys);
+        int minScore = rules.minDuplicateScore();
+        DisjointSet groups = new DisjointSet(contacts.size());
+        BlockingIndex.Cursor cursor = index.newCursor();
+
+        long compared = 0;
+        for (int i = 0; i < contacts.size(); i++) {
+            int row = i;
+            compared += index.forEachCandidateAfter(row, cursor, j -> {
+                int score = rules.score(keys, row, j, minScore);
+                if (score >= minScore) {
+                    groups.union(row, j, score);
                 }
+            });
+        }
+        listener.pairsCompared(compared);
+
+        // La primera fila de cada conjunto es su representante y fija el orden de salida
+        Map<Integer, List<String>> membersByRoot = new LinkedHashMap<>();
+        for (int row = 0; row < contacts.size(); row++) {
+            if (groups.size(row) > 1) {
+                membersByRoot.computeIfAbsent(groups.find(row), root -> new ArrayList<>()).add(contacts.get(row).getId());
             }
         }
-        return contacts;
+        List<DuplicateGroup> result = new ArrayList<>(membersByRoot.size());
+        membersByRoot.forEach((root, members) ->
+                result.add(new DuplicateGroup(members.getFirst(), members, groups.maxScore(root))));
+        return result;
     }
 
     /**
-     * Método de utilidad para leer el valor de una celda como String,
-     * de forma segura, sin importar si la celda es nula, de tipo numérico o texto.
+     * Puntúa cada fila del tramo [from, to) contra sus candidatos posteriores, con un solo cursor
+     * del índice para todo el tramo.
      */
-    private String getCellValueAsString(Cell cell) {
-        // 1. Si la celda es nula, devolvemos una cadena vacía para evitar errores.
-        if (cell == null) {
-            return "";
+    private void collectMatches(Scoring scoring, int from, int to, MatchCollector matches, ProgressListener listener) {
+        ContactKeys keys = scoring.keys();
+        int minScore = scoring.minScore();
+        int maxScore = scoring.maxScore();
+        BlockingIndex index = scoring.index();
+        BlockingIndex.Cursor cursor = index.newCursor();
+        long compared = 0;
+        for (int i = from; i < to; i++) {
+            int row = i;
+            compared += index.forEachCandidateAfter(row, cursor, j -> {
+                int score = rules.score(keys, row, j, minScore);
+                if (score >= minScore && score <= maxScore) {
+                    matches.add(row, j, score, rules.precision(score));
+                }
+            });
         }
+        listener.pairsCompared(compared);
+    }
+
+    /**
+     * Crea un índice incremental vacío que puntúa con la misma configuración que este servicio.
+     */
+    IncrementalIndex newIncrementalIndex() {
+        return new IncrementalIndex(rules);
+    }
+
+    /**
+     * Igual que {@link #newIncrementalIndex()}, pero un contacto con un id ya indexado sustituye
+     * a su versión anterior en lugar de compararse con ella.
+     */
+    IncrementalIndex newReplacingIndex() {
+        return new IncrementalIndex(rules, true);
+    }
 
-        // 2. Leemos el valor según el tipo de celda
-        return switch (cell.getCellType()) {
-            case STRING -> cell.getStringCellValue();
-            case NUMERIC -> String.valueOf((long) cell.getNumericCellValue());
-            default -> "";
+    /**
+     * Crea un coordinador que reparte la búsqueda en {@code shards} fragmentos y los puntúa en
+     * este mismo proceso.
+     */
+    public ShardCoordinator newShardCoordinator(int shards) {
+        return newShardCoordinator(shards, new InProcessShardWorker(this));
+    }
+
+    /**
+     * Igual que {@link #newShardCoordinator(int)} con otro worker, por ejemplo uno remoto.
+     */
+    public ShardCoordinator newShardCoordinator(int shards, ShardWorker worker) {
+        return new ShardCoordinator(rules, metrics, shards, worker);
+    }
+
+    /**
+     * Puntúa los contactos de un fragmento como si fueran un archivo aparte y traduce las filas
+     * de las coincidencias a las del archivo original. Como las filas del fragmento están en orden
+     * ascendente, las coincidencias salen en el mismo orden que en {@link #findDuplicates(List)}.
+     */
+    ShardWorker.Result scoreShard(ShardWorker.Shard shard, MatchQuery query) {
+        AtomicLong compared = new AtomicLong();
+        ProgressListener counter = new ProgressListener() {
+            @Override
+            public void pairsCompared(long pairs) {
+                compared.addAndGet(pairs);
+            }
         };
+        MatchStore matches = withScoringPermit(() -> scoreAll(shard.contacts(), query, counter));
+        int[] rows = shard.rows();
+        int[] origen = new int[matches.size()];
+        int[] coincidencia = new int[matches.size()];
+        int[] scores = new int[matches.size()];
+        for (int i = 0; i < origen.length; i++) {
+            origen[i] = rows[matches.origenRow(i)];
+            coincidencia[i] = rows[matches.coincidenciaRow(i)];
+            scores[i] = matches.score(i);
+        }
+        return new ShardWorker.Result(shard.index(), origen, coincidencia, scores, compared.get());
+    }
+
+    /**
+     * Divide el rango de filas por la mitad hasta llegar a tramos pequeños. Cada tarea devuelve
+     * su propio colector y el de la izquierda absorbe al de la derecha, así el orden final
+     * coincide con el secuencial sin compartir estructuras entre hilos.
+     */
+    private final class ScoringTask<C extends MatchCollector> extends RecursiveTask<C> {
+        private final Scoring scoring;
+        private final int from;
+        private final int to;
+        private final Supplier<C> collectors;
+        private final BiConsumer<C, C> merge;
+        private final ProgressListener listener;
+
+        ScoringTask(Scoring scoring, int from, int to, Supplier<C> collectors, BiConsumer<C, C> merge,
+                    ProgressListener listener) {
+            this.scoring = scoring;
+            this.from = from;
+            this.to = to;
+            this.collectors = collectors;
+            this.merge = merge;
+            this.listener = listener;
+        }
+
+        @Override
+        protected C compute() {
+            if (to - from <= PARALLEL_CHUNK_ROWS) {
+                C matches = collectors.get();
+                collectMatches(scoring, from, to, matches, listener);
+                return matches;
+            }
+            int middle = (from + to) >>> 1;
+            ScoringTask<C> right = new ScoringTask<>(scoring, middle, to, collectors, merge, listener);
+            right.fork();
+            C matches = new ScoringTask<>(scoring, from, middle, collectors, merge, listener).compute();
+            merge.accept(matches, right.join());
+            return matches;
+        }
+    }
+
+    /**
+     * Lee un archivo Excel y lo convierte en una lista de objetos Contact.
+     */
+    public List<Contact> parseContactsFromExcel(InputStream inputStream) throws Exception {
+        List<Contact> contacts = new ArrayList<>();
+        parseContactsFromExcel(inputStream, contacts::add);
+        return contacts;
+    }
+
+    /**
+     * Lee un archivo Excel en streaming y entrega los contactos de uno en uno,
+     * sin construir el libro completo en memoria.
+     */
+    public void parseContactsFromExcel(InputStream inputStream, Consumer<Contact> consumer) throws Exception {
+        long skipped = metrics.parseTimer(ContactFileFormat.XLSX).recordCallable(() -> excelReader.read(inputStream, metrics.countingRows(consumer)));
+        metrics.rowsSkipped(skipped);
+    }
+
+    /**
+     * Lee en streaming un archivo Excel ya guardado en disco.
+     */
+    public void parseContactsFromExcel(Path file, Consumer<Contact> consumer) throws Exception {
+        long skipped = metrics.parseTimer(ContactFileFormat.XLSX).recordCallable(() -> excelReader.read(file, metrics.countingRows(consumer)));
+        metrics.rowsSkipped(skipped);
+    }
+
+    /**
+     * Lee un archivo CSV (o CSV con gzip) y lo convierte en una lista de objetos Contact.
+     */
+    public List<Contact> parseContactsFromCsv(InputStream inputStream) throws Exception {
+        List<Contact> contacts = new ArrayList<>();
+        parseContactsFromCsv(inputStream, contacts::add);
+        return contacts;
+    }
+
+    /**
+     * Lee un archivo CSV en streaming con las mismas columnas que el Excel.
+     */
+    public void parseContactsFromCsv(InputStream inputStream, Consumer<Contact> consumer) throws Exception {
+        long skipped = metrics.parseTimer(ContactFileFormat.CSV).recordCallable(() -> csvReader.read(inputStream, metrics.countingRows(consumer)));
+        metrics.rowsSkipped(skipped);
+    }
+
+    /**
+     * Lee en streaming un archivo CSV ya guardado en disco, directamente de su FileChannel.
+     */
+    public void parseContactsFromCsv(Path file, Consumer<Contact> consumer) throws Exception {
+        long skipped = metrics.parseTimer(ContactFileFormat.CSV).recordCallable(() -> csvReader.read(file, metrics.countingRows(consumer)));
+        metrics.rowsSkipped(skipped);
+    }
+
+    /**
+     * Lee el archivo con el lector que corresponde a su formato.
+     */
+    public List<Contact> parseContacts(InputStream inputStream, ContactFileFormat format) throws Exception {
+        return format == ContactFileFormat.CSV ? parseContactsFromCsv(inputStream) : parseContactsFromExcel(inputStream);
+    }
+
+    /**
+     * Lee en streaming un archivo guardado en disco con el lector que corresponde a su formato.
+     */
+    public void parseContacts(Path file, ContactFileFormat format, Consumer<Contact> consumer) throws Exception {
+        if (format == ContactFileFormat.CSV) {
+            parseContactsFromCsv(file, consumer);
+        } else {
+            parseContactsFromExcel(file, consumer);
+        }
     }
 }
@@ -0,0 +1,343 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.config.DuplicateFinderProperties;
+import com.osmi.dev.duplicatefinder.model.Contact;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Copias binarias de los contactos ya leídos de un archivo, para no volver a pasarlo por POI.
+ *
+ * Cada snapshot se guarda por columnas: los seis campos de todos los contactos, uno detrás de
+ * otro, cada uno con las longitudes en bytes de sus valores delante del texto UTF-8. Apellido y
+ * código postal, que se repiten mucho, se guardan como diccionario más un código por fila. La
+ * cabecera lleva la configuración de lectura con la que se generó; si ya no coincide, el snapshot
+ * no se usa.
+ *
+ * Se escriben en un archivo temporal que después se renombra, y se leen proyectando el archivo en
+ * memoria con {@link FileChannel#map} por ventanas, de modo que un snapshot de más de 2 GiB se
+ * lee igual que uno pequeño. Al superar el máximo de snapshots se borra el más antiguo.
+ * Como guardan nombres, emails y direcciones, están desactivados por defecto y el directorio se
+ * crea con acceso solo para el usuario del proceso.
+ */
+final class ContactSnapshotStore {
+
+    private static final int MAGIC = 0x44465332; // "DFS2"
+    private static final String EXTENSION = ".snap";
+
+    /** Bytes del archivo que se proyectan en memoria a la vez al leer un snapshot. */
+    static final int MAP_WINDOW_BYTES = 64 * 1024 * 1024;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int maxEntries;
+    private final String readerFingerprint;
+    private final int mapWindowBytes;
+
+    /**
+     * @param readerFingerprint configuración de lectura que afecta a los contactos obtenidos
+     */
+    ContactSnapshotStore(DuplicateFinderProperties.Snapshots config, String readerFingerprint) {
+        this(config, readerFingerprint, MAP_WINDOW_BYTES);
+    }
+
+    ContactSnapshotStore(DuplicateFinderProperties.Snapshots config, String readerFingerprint, int mapWindowBytes) {
+        this.enabled = config.isEnabled();
+        this.directory = config.effectiveDirectory();
+        this.maxEntries = config.getMaxEntries();
+        this.readerFingerprint = readerFingerprint;
+        this.mapWindowBytes = mapWindowBytes;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Lee los contactos del snapshot de {@code key}, o vacío si no existe o se generó con otra
+     * configuración de lectura.
+     */
+    Optional<List<Contact>> read(String key) throws IOException {
+        Path file = file(key);
+        if (!enabled || !Files.exists(file)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedInput buffer = new MappedInput(channel, mapWindowBytes);
+            if (buffer.getInt() != MAGIC || !readerFingerprint.equals(buffer.getString(buffer.getInt()))) {
+                return Optional.empty();
+            }
+            int rows = buffer.getInt();
+            String[] ids = readColumn(buffer, rows);
+            String[] nombres = readColumn(buffer, rows);
+            String[] apellidos = readDictionaryColumn(buffer, rows);
+            String[] emails = readColumn(buffer, rows);
+            String[] codigosPostales = readDictionaryColumn(buffer, rows);
+            String[] direcciones = readColumn(buffer, rows);
+
+            List<Contact> contacts = new ArrayList<>(rows);
+            for (int row = 0; row < rows; row++) {
+                Contact contact = new Contact();
+                contact.setId(ids[row]);
+                contact.setNombre(nombres[row]);
+                contact.setApellido(apellidos[row]);
+                contact.setEmail(emails[row]);
+                contact.setCodigoPostal(codigosPostales[row]);
+                contact.setDireccion(direcciones[row]);
+                contacts.add(contact);
+            }
+            // Marca el snapshot como usado para que sea el último en descartarse
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return Optional.of(contacts);
+        } catch (NoSuchFileException e) {
+            // Se descartó después de comprobar que existía
+            return Optional.empty();
+        } catch (EOFException | RuntimeException e) {
+            // Un snapshot ilegible se borra para no volver a intentarlo, y reescribirlo, en cada trabajo
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Guarda los contactos como snapshot de {@code key}, sustituyendo el anterior si lo había.
+     */
+    void write(String key, List<Contact> contacts) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        createDirectory();
+        Path temp = Files.createTempFile(directory, "snapshot-", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024))) {
+                out.writeInt(MAGIC);
+                writeString(out, readerFingerprint);
+                out.writeInt(contacts.size());
+                writeColumn(out, contacts, Contact::getId);
+                writeColumn(out, contacts, Contact::getNombre);
+                writeDictionaryColumn(out, contacts, Contact::getApellido);
+                writeColumn(out, contacts, Contact::getEmail);
+                writeDictionaryColumn(out, contacts, Contact::getCodigoPostal);
+                writeColumn(out, contacts, Contact::getDireccion);
+            }
+            Files.move(temp, file(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        evictOldest();
+    }
+
+    /**
+     * Tamaño en disco del snapshot, para estimar cuánta memoria ocupará al leerlo, o vacío si no
+     * existe. Comprobar la existencia y leer el tamaño es una sola operación, para que un snapshot
+     * descartado entre medias no acabe en un {@link NoSuchFileException}.
+     */
+    OptionalLong size(String key) throws IOException {
+        if (!enabled) {
+            return OptionalLong.empty();
+        }
+        try {
+            return OptionalLong.of(Files.size(file(key)));
+        } catch (NoSuchFileException e) {
+            return OptionalLong.empty();
+        }
+    }
+
+    /**
+     * Crea el directorio, si el sistema lo permite, con acceso solo para el usuario del proceso,
+     * ya que los snapshots contienen los datos personales de los contactos.
+     */
+    private void createDirectory() throws IOException {
+        if (Files.isDirectory(directory)) {
+            return;
+        }
+        if (directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } else {
+            Files.createDirectories(directory);
+        }
+    }
+
+    private Path file(String key) {
+        return directory.resolve(key + EXTENSION);
+    }
+
+    private void evictOldest() throws IOException {
+        List<Path> snapshots;
+        try (Stream<Path> files = Files.list(directory)) {
+            snapshots = files.filter(path -> path.getFileName().toString().endsWith(EXTENSION)).toList();
+        }
+        if (snapshots.size() <= maxEntries) {
+            return;
+        }
+        Map<Path, FileTime> modified = new HashMap<>();
+        for (Path snapshot : snapshots) {
+            modified.put(snapshot, Files.getLastModifiedTime(snapshot));
+        }
+        List<Path> oldestFirst = new ArrayList<>(snapshots);
+        oldestFirst.sort(Comparator.comparing(modified::get));
+        for (Path snapshot : oldestFirst.subList(0, snapshots.size() - maxEntries)) {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    /**
+     * Columna de texto: longitud en bytes de cada valor (-1 para null), total de bytes como
+     * {@code long} y los valores concatenados.
+     */
+    private static void writeColumn(DataOutputStream out, List<Contact> contacts, Function<Contact, String> field) throws IOException {
+        List<String> values = new ArrayList<>(contacts.size());
+        for (Contact contact : contacts) {
+            values.add(field.apply(contact));
+        }
+        writeStrings(out, values);
+    }
+
+    /**
+     * Columna con diccionario: los valores distintos como columna de texto y un código por fila
+     * (-1 para null).
+     */
+    private static void writeDictionaryColumn(DataOutputStream out, List<Contact> contacts,
+                                              Function<Contact, String> field) throws IOException {
+        Map<String, Integer> dictionary = new HashMap<>();
+        int[] codes = new int[contacts.size()];
+        for (int row = 0; row < codes.length; row++) {
+            codes[row] = ContactKeys.intern(dictionary, field.apply(contacts.get(row)));
+        }
+        String[] entries = new String[dictionary.size()];
+        dictionary.forEach((value, code) -> entries[code] = value);
+
+        out.writeInt(entries.length);
+        writeStrings(out, List.of(entries));
+        for (int code : codes) {
+            out.writeInt(code);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        List<byte[]> encoded = new ArrayList<>(values.size());
+        long total = 0;
+        for (String value : values) {
+            byte[] bytes = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            out.writeInt(bytes == null ? -1 : bytes.length);
+            total += bytes == null ? 0 : bytes.length;
+        }
+        out.writeLong(total);
+        for (byte[] bytes : encoded) {
+            if (bytes != null) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Decodifica cada valor por separado, sin reunir la columna en un solo array, para que su
+     * tamaño total no esté limitado a 2 GiB.
+     */
+    private static String[] readColumn(MappedInput buffer, int count) throws IOException {
+        int[] lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            lengths[i] = buffer.getInt();
+        }
+        buffer.getLong();
+
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            if (lengths[i] >= 0) {
+                values[i] = buffer.getString(lengths[i]);
+            }
+        }
+        return values;
+    }
+
+    private static String[] readDictionaryColumn(MappedInput buffer, int rows) throws IOException {
+        String[] entries = readColumn(buffer, buffer.getInt());
+        String[] values = new String[rows];
+        for (int row = 0; row < rows; row++) {
+            int code = buffer.getInt();
+            values[row] = code < 0 ? null : entries[code];
+        }
+        return values;
+    }
+
+    /**
+     * Lectura secuencial de un archivo proyectado en memoria por ventanas de como mucho
+     * {@code windowBytes}; cuando el siguiente valor no cabe en la ventana actual, se proyecta
+     * otra a partir de él.
+     */
+    private static final class MappedInput {
+        private final FileChannel channel;
+        private final long size;
+        private final int windowBytes;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        MappedInput(FileChannel channel, int windowBytes) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.windowBytes = windowBytes;
+            map(0, 0);
+        }
+
+        int getInt() throws IOException {
+            return require(Integer.BYTES).getInt();
+        }
+
+        long getLong() throws IOException {
+            return require(Long.BYTES).getLong();
+        }
+
+        String getString(int length) throws IOException {
+            byte[] bytes = new byte[length];
+            require(length).get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private ByteBuffer require(int bytes) throws IOException {
+            if (window.remaining() < bytes) {
+                long position = windowStart + window.position();
+                if (size - position < bytes) {
+                    throw new EOFException("Snapshot truncado");
+                }
+                map(position, bytes);
+            }
+            return window;
+        }
+
+        private void map(long position, int minBytes) throws IOException {
+            long length = Math.min(Math.max(windowBytes, minBytes), size - position);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            windowStart = position;
+        }
+    }
+}
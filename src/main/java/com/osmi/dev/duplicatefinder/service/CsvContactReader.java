@@ -0,0 +1,246 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.config.DuplicateFinderProperties;
+import com.osmi.dev.duplicatefinder.model.Contact;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Lector de archivos CSV (opcionalmente comprimidos con gzip) con las mismas seis columnas
+ * que el Excel: id, nombre, apellido, email, código postal y dirección.
+ *
+ * Lee el archivo por bloques en un ByteBuffer reutilizable y recorre los bytes con un autómata
+ * propio: no crea una cadena por línea, solo una por campo leído. Admite campos entre comillas
+ * (con "" como comilla escapada, delimitadores y saltos de línea dentro), finales de línea \n o
+ * \r\n y la marca BOM de UTF-8. Los gzip se reconocen por sus dos primeros bytes, no por el nombre.
+ */
+public class CsvContactReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int GZIP_MAGIC_1 = 0x1f;
+    private static final int GZIP_MAGIC_2 = 0x8b;
+    private static final int BOM_LENGTH = 3;
+
+    private final byte delimiter;
+    private final int headerRows;
+
+    public CsvContactReader() {
+        this(new DuplicateFinderProperties.Csv());
+    }
+
+    public CsvContactReader(DuplicateFinderProperties.Csv config) {
+        if (config.getDelimiter() > 0x7f || config.getDelimiter() == '"') {
+            throw new IllegalArgumentException("El delimitador CSV debe ser un carácter ASCII distinto de la comilla: " + config.getDelimiter());
+        }
+        this.delimiter = (byte) config.getDelimiter();
+        this.headerRows = config.getHeaderRows();
+    }
+
+    /**
+     * Lee el CSV del stream y entrega cada contacto con ID al consumidor.
+     *
+     * @return número de filas omitidas por no tener ID
+     */
+    public long read(InputStream inputStream, Consumer<Contact> consumer) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(inputStream, BUFFER_SIZE);
+        in.mark(2);
+        boolean gzip = in.read() == GZIP_MAGIC_1 && in.read() == GZIP_MAGIC_2;
+        in.reset();
+        InputStream source = gzip ? new GZIPInputStream(in, BUFFER_SIZE) : in;
+        return read(Channels.newChannel(source), consumer);
+    }
+
+    /**
+     * Lee el CSV ubicado en {@code file} directamente de su FileChannel.
+     *
+     * @return número de filas omitidas por no tener ID
+     */
+    public long read(Path file, Consumer<Contact> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(2);
+            channel.read(magic, 0);
+            if (magic.position() == 2 && (magic.get(0) & 0xff) == GZIP_MAGIC_1 && (magic.get(1) & 0xff) == GZIP_MAGIC_2) {
+                InputStream gzip = new GZIPInputStream(Channels.newInputStream(channel), BUFFER_SIZE);
+                return read(Channels.newChannel(gzip), consumer);
+            }
+            return read(channel, consumer);
+        }
+    }
+
+    private long read(ReadableByteChannel channel, Consumer<Contact> consumer) throws IOException {
+        Scanner scanner = new Scanner(consumer);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        // Un canal puede devolver menos bytes que la marca BOM en la primera lectura (un gzip o
+        // un stream lento): el primer bloque se completa hasta tenerla entera antes de analizarlo
+        boolean open = true;
+        while (open && buffer.position() < BOM_LENGTH) {
+            open = channel.read(buffer) >= 0;
+        }
+        buffer.flip();
+        scanner.scan(buffer);
+        buffer.clear();
+        while (open && channel.read(buffer) >= 0) {
+            buffer.flip();
+            scanner.scan(buffer);
+            buffer.clear();
+        }
+        scanner.finish();
+        return scanner.skippedRows;
+    }
+
+    /**
+     * Autómata que separa campos y registros. Acumula los bytes del campo actual en un arreglo
+     * reutilizable y solo los decodifica a String al cerrar un campo de las seis columnas leídas,
+     * de modo que un carácter UTF-8 partido entre dos bloques se decodifica entero.
+     */
+    private final class Scanner {
+
+        private final Consumer<Contact> consumer;
+        private final String[] values = new String[ExcelContactReader.COLUMNS];
+        private byte[] field = new byte[256];
+        private int fieldLength;
+        private int column;
+        private long records;
+        private long skippedRows;
+        private boolean atStart = true;
+        private boolean inQuotes;
+        // Se vio una comilla dentro de un campo entre comillas: puede ser "" o el cierre
+        private boolean quotePending;
+        // El registro tiene algún byte, para ignorar las líneas vacías
+        private boolean recordStarted;
+        private boolean afterCarriageReturn;
+
+        Scanner(Consumer<Contact> consumer) {
+            this.consumer = consumer;
+            Arrays.fill(values, "");
+        }
+
+        void scan(ByteBuffer buffer) {
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (atStart) {
+                    atStart = false;
+                    if (skipBom(b, buffer)) {
+                        continue;
+                    }
+                }
+                if (inQuotes) {
+                    if (quotePending) {
+                        quotePending = false;
+                        if (b == '"') {
+                            append(b);
+                            continue;
+                        }
+                        inQuotes = false;
+                    } else {
+                        if (b == '"') {
+                            quotePending = true;
+                        } else {
+                            append(b);
+                        }
+                        continue;
+                    }
+                }
+                if (b == '\n') {
+                    if (!afterCarriageReturn) {
+                        endRecord();
+                    }
+                    afterCarriageReturn = false;
+                    continue;
+                }
+                afterCarriageReturn = false;
+                if (b == '\r') {
+                    endRecord();
+                    afterCarriageReturn = true;
+                } else if (b == delimiter) {
+                    recordStarted = true;
+                    endField();
+                } else if (b == '"' && fieldLength == 0) {
+                    recordStarted = true;
+                    inQuotes = true;
+                } else {
+                    recordStarted = true;
+                    append(b);
+                }
+            }
+        }
+
+        /**
+         * Descarta la marca BOM de UTF-8 (EF BB BF) si el archivo empieza por ella. El primer
+         * bloque trae siempre sus tres bytes, salvo que el archivo sea más corto.
+         */
+        private boolean skipBom(byte first, ByteBuffer buffer) {
+            if ((first & 0xff) != 0xef || buffer.remaining() < 2
+                    || (buffer.get(buffer.position()) & 0xff) != 0xbb
+                    || (buffer.get(buffer.position() + 1) & 0xff) != 0xbf) {
+                return false;
+            }
+            buffer.position(buffer.position() + 2);
+            return true;
+        }
+
+        void finish() {
+            // Un campo entre comillas sin cerrar se toma tal cual hasta el final del archivo
+            inQuotes = false;
+            quotePending = false;
+            endRecord();
+        }
+
+        private void append(byte b) {
+            if (fieldLength == field.length) {
+                field = Arrays.copyOf(field, field.length * 2);
+            }
+            field[fieldLength++] = b;
+        }
+
+        private void endField() {
+            if (column < values.length) {
+                values[column] = new String(field, 0, fieldLength, StandardCharsets.UTF_8);
+            }
+            column++;
+            fieldLength = 0;
+        }
+
+        private void endRecord() {
+            if (!recordStarted && fieldLength == 0 && column == 0) {
+                return;
+            }
+            endField();
+            if (++records > headerRows) {
+                emit();
+            }
+            Arrays.fill(values, "");
+            column = 0;
+            recordStarted = false;
+        }
+
+        private void emit() {
+            Contact contact = new Contact();
+            contact.setId(values[0]);
+            contact.setNombre(values[1]);
+            contact.setApellido(values[2]);
+            contact.setEmail(values[3]);
+            contact.setCodigoPostal(values[4]);
+            contact.setDireccion(values[5]);
+
+            // Igual que en el Excel, solo se entregan los contactos con ID
+            if (!contact.getId().isBlank()) {
+                consumer.accept(contact);
+            } else {
+                skippedRows++;
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.osmi.dev.duplicatefinder.service;
+
+/**
+ * Conjuntos disjuntos (union-find) sobre las filas 0..n-1, con compresión de caminos
+ * y unión por tamaño. Además guarda, por conjunto, la puntuación máxima de las uniones.
+ */
+final class DisjointSet {
+
+    private final int[] parent;
+    private final int[] size;
+    private final int[] maxScore;
+
+    DisjointSet(int n) {
+        parent = new int[n];
+        size = new int[n];
+        maxScore = new int[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+            size[i] = 1;
+        }
+    }
+
+    int find(int x) {
+        int root = x;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+        // Compresión de caminos: todos los nodos recorridos apuntan directamente a la raíz
+        while (parent[x] != root) {
+            int next = parent[x];
+            parent[x] = root;
+            x = next;
+        }
+        return root;
+    }
+
+    /**
+     * Une los conjuntos de {@code a} y {@code b} por un par con la puntuación indicada.
+     */
+    void union(int a, int b, int score) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA != rootB) {
+            if (size[rootA] < size[rootB]) {
+                int swap = rootA;
+                rootA = rootB;
+                rootB = swap;
+            }
+            parent[rootB] = rootA;
+            size[rootA] += size[rootB];
+            maxScore[rootA] = Math.max(maxScore[rootA], maxScore[rootB]);
+        }
+        maxScore[rootA] = Math.max(maxScore[rootA], score);
+    }
+
+    int size(int x) {
+        return size[find(x)];
+    }
+
+    int maxScore(int x) {
+        return maxScore[find(x)];
+    }
+}
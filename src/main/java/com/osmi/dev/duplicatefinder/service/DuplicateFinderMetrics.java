@@ -0,0 +1,167 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.model.ContactFileFormat;
+import com.osmi.dev.duplicatefinder.model.DuplicateMatch;
+import com.osmi.dev.duplicatefinder.model.JobMode;
+import com.osmi.dev.duplicatefinder.model.MatchPrecision;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Métricas del procesamiento de archivos, publicadas en /actuator/prometheus.
+ *
+ * Separa el tiempo de lectura del archivo del de búsqueda de duplicados y cuenta filas, pares
+ * comparados y coincidencias por precisión. Los histogramas de percentiles se activan desde
+ * application.properties.
+ */
+@Component
+public class DuplicateFinderMetrics {
+
+    private final Timer xlsxParseTimer;
+    private final Timer csvParseTimer;
+    private final Timer pairsTimer;
+    private final Timer groupsTimer;
+    private final Counter rowsParsed;
+    private final Counter rowsSkipped;
+    private final Counter pairsCompared;
+    private final Counter altaMatches;
+    private final Counter bajaMatches;
+    private final Counter throttledUploads;
+    private final Counter queueFullUploads;
+    private final AtomicInteger inFlightUploads = new AtomicInteger();
+    private final AtomicLong reservedBytes = new AtomicLong();
+
+    public DuplicateFinderMetrics(MeterRegistry registry) {
+        this.xlsxParseTimer = parseTimer(registry, ContactFileFormat.XLSX);
+        this.csvParseTimer = parseTimer(registry, ContactFileFormat.CSV);
+        this.pairsTimer = matchTimer(registry, JobMode.PAIRS);
+        this.groupsTimer = matchTimer(registry, JobMode.GROUPS);
+        this.rowsParsed = Counter.builder("duplicatefinder.rows.parsed")
+                .description("Contactos leídos con ID")
+                .register(registry);
+        this.rowsSkipped = Counter.builder("duplicatefinder.rows.skipped")
+                .description("Filas omitidas por no tener ID")
+                .register(registry);
+        this.pairsCompared = Counter.builder("duplicatefinder.pairs.compared")
+                .description("Pares candidatos puntuados")
+                .register(registry);
+        this.altaMatches = matchCounter(registry, MatchPrecision.ALTA);
+        this.bajaMatches = matchCounter(registry, MatchPrecision.BAJA);
+        this.throttledUploads = rejectedCounter(registry, "throttled");
+        this.queueFullUploads = rejectedCounter(registry, "queue_full");
+        registry.gauge("duplicatefinder.uploads.inflight", inFlightUploads);
+        registry.gauge("duplicatefinder.admission.reserved.bytes", reservedBytes);
+    }
+
+    /**
+     * Métricas que no se publican en ningún sitio, para usar los servicios fuera de Spring.
+     */
+    public static DuplicateFinderMetrics noop() {
+        return new DuplicateFinderMetrics(new CompositeMeterRegistry());
+    }
+
+    private static Timer parseTimer(MeterRegistry registry, ContactFileFormat format) {
+        return Timer.builder("duplicatefinder.parse")
+                .description("Tiempo de lectura del archivo de contactos")
+                .tag("format", format.name().toLowerCase(Locale.ROOT))
+                .register(registry);
+    }
+
+    private static Timer matchTimer(MeterRegistry registry, JobMode mode) {
+        return Timer.builder("duplicatefinder.match")
+                .description("Tiempo de búsqueda de duplicados")
+                .tag("mode", mode.name().toLowerCase(Locale.ROOT))
+                .register(registry);
+    }
+
+    private static Counter matchCounter(MeterRegistry registry, MatchPrecision precision) {
+        return Counter.builder("duplicatefinder.matches")
+                .description("Coincidencias encontradas")
+                .tag("precision", precision.getLabel())
+                .register(registry);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry registry, String reason) {
+        return Counter.builder("duplicatefinder.uploads.rejected")
+                .description("Subidas rechazadas por falta de memoria o por la cola llena")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    Timer parseTimer(ContactFileFormat format) {
+        return format == ContactFileFormat.CSV ? csvParseTimer : xlsxParseTimer;
+    }
+
+    Timer matchTimer(JobMode mode) {
+        return mode == JobMode.GROUPS ? groupsTimer : pairsTimer;
+    }
+
+    /**
+     * Envuelve el consumidor del lector para contar cada contacto leído.
+     */
+    <T> Consumer<T> countingRows(Consumer<T> consumer) {
+        return row -> {
+            rowsParsed.increment();
+            consumer.accept(row);
+        };
+    }
+
+    void rowsSkipped(long rows) {
+        rowsSkipped.increment(rows);
+    }
+
+    /**
+     * Envuelve el listener para sumar además los pares comparados al contador global.
+     */
+    ProgressListener tracking(ProgressListener listener) {
+        return new ProgressListener() {
+            @Override
+            public void rowParsed() {
+                listener.rowParsed();
+            }
+
+            @Override
+            public void pairsCompared(long pairs) {
+                pairsCompared.increment(pairs);
+                listener.pairsCompared(pairs);
+            }
+        };
+    }
+
+    void matchesFound(long alta, long baja) {
+        altaMatches.increment(alta);
+        bajaMatches.increment(baja);
+    }
+
+    void matchFound(DuplicateMatch match) {
+        (MatchPrecision.ALTA.getLabel().equals(match.getPrecision()) ? altaMatches : bajaMatches).increment();
+    }
+
+    void uploadStarted() {
+        inFlightUploads.incrementAndGet();
+    }
+
+    void uploadFinished() {
+        inFlightUploads.decrementAndGet();
+    }
+
+    /**
+     * Cuenta una subida rechazada: {@code throttled} si no hubo memoria libre a tiempo,
+     * y si no, porque la cola de trabajos estaba llena.
+     */
+    void uploadRejected(boolean throttled) {
+        (throttled ? throttledUploads : queueFullUploads).increment();
+    }
+
+    void memoryReserved(long bytes) {
+        reservedBytes.addAndGet(bytes);
+    }
+}
@@ -0,0 +1,463 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.config.DuplicateFinderProperties;
+import com.osmi.dev.duplicatefinder.model.Contact;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Lector en streaming de archivos .xlsx basado en la API de eventos de POI.
+ *
+ * En lugar de cargar el libro completo en memoria (XSSFWorkbook), recorre el XML de la hoja
+ * con SAX y entrega cada fila como un {@link Contact} en cuanto termina de leerla, de modo que
+ * la memoria no depende del número de filas. Los libros que reparten los contactos en varias
+ * hojas pueden leerse completos, con las hojas en paralelo.
+ */
+public class ExcelContactReader {
+
+    /** Número de filas de cabecera que se omiten al inicio de la hoja. */
+    static final int HEADER_ROWS = 2;
+
+    /** Columnas leídas: id, nombre, apellido, email, código postal y dirección. */
+    static final int COLUMNS = 6;
+
+    /** Valor de la lista de hojas que selecciona todas las hojas del libro. */
+    static final String ALL_SHEETS = "*";
+
+    /**
+     * Contactos que una hoja leída en paralelo guarda en memoria; los siguientes se vuelcan a
+     * un archivo temporal hasta que llega su turno.
+     */
+    static final int SHEET_QUEUE_CAPACITY = 1024;
+
+    private static final int IO_BUFFER_BYTES = 64 * 1024;
+
+    /** Marca de fin que deja en su cola cada hoja leída en paralelo. */
+    private static final Contact END_OF_SHEET = new Contact();
+
+    private final List<String> sheetNames;
+    private final int sheetParallelism;
+
+    public ExcelContactReader() {
+        this(new DuplicateFinderProperties.Excel());
+    }
+
+    public ExcelContactReader(DuplicateFinderProperties.Excel config) {
+        this.sheetNames = List.copyOf(config.getSheets());
+        this.sheetParallelism = config.effectiveSheetParallelism();
+    }
+
+    /**
+     * Lee las hojas configuradas del libro y entrega cada contacto con ID al consumidor.
+     * El stream se vuelca a un archivo temporal para que POI lo lea por partes.
+     *
+     * @return número de filas omitidas por no tener ID
+     */
+    public long read(InputStream inputStream, Consumer<Contact> consumer) throws Exception {
+        Path tempFile = Files.createTempFile("contacts-", ".xlsx");
+        try {
+            Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            return read(tempFile, consumer);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Lee las hojas configuradas del libro ubicado en {@code file}: por defecto solo la primera,
+     * con "*" todas y, si no, las indicadas por nombre, siempre en el orden del libro.
+     *
+     * Con varias hojas, la primera se lee en el hilo que llama y entrega sus contactos al momento,
+     * mientras el resto se leen a la vez en otros hilos, guardando lo que no cabe en memoria en
+     * disco, y se entregan después, hoja por hoja. El consumidor recibe los contactos siempre
+     * desde el hilo que llama y en el orden del libro.
+     *
+     * @return número de filas omitidas por no tener ID
+     */
+    public long read(Path file, Consumer<Contact> consumer) throws Exception {
+        OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+        List<InputStream> sheets = new ArrayList<>();
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(pkg, false);
+            XSSFReader.SheetIterator iterator = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (iterator.hasNext()) {
+                InputStream sheet = iterator.next();
+                if (isSelected(iterator.getSheetName(), sheets.isEmpty())) {
+                    sheets.add(sheet);
+                } else {
+                    sheet.close();
+                }
+                if (sheetNames.isEmpty()) {
+                    break;
+                }
+            }
+            if (sheets.isEmpty()) {
+                return 0;
+            }
+            return sheets.size() == 1 || sheetParallelism <= 1
+                    ? readSequentially(sharedStrings, sheets, consumer)
+                    : readInParallel(sharedStrings, sheets, consumer);
+        } finally {
+            for (InputStream sheet : sheets) {
+                sheet.close();
+            }
+            // Paquete abierto en solo lectura: revert() libera el archivo sin intentar guardarlo
+            pkg.revert();
+        }
+    }
+
+    private boolean isSelected(String sheetName, boolean first) {
+        if (sheetNames.isEmpty()) {
+            return first;
+        }
+        return sheetNames.contains(ALL_SHEETS) || sheetNames.contains(sheetName);
+    }
+
+    private static long readSequentially(ReadOnlySharedStringsTable sharedStrings, List<InputStream> sheets,
+                                         Consumer<Contact> consumer) throws Exception {
+        long skipped = 0;
+        for (InputStream sheet : sheets) {
+            skipped += readSheet(sharedStrings, sheet, consumer);
+        }
+        return skipped;
+    }
+
+    /**
+     * Lee la primera hoja en el hilo actual y el resto en un pool. Cada hoja del pool deja sus
+     * primeros {@value #SHEET_QUEUE_CAPACITY} contactos en su propia cola y el resto en un archivo
+     * temporal, así que nunca espera a que el hilo que llama llegue a ella: las hojas se leen de
+     * verdad a la vez y el libro tarda más o menos lo que su hoja más larga, con memoria acotada
+     * también en los modos en tubería y fuera de memoria. El hilo que llama vacía cada cola y
+     * después su archivo, en el orden del libro. La tabla de cadenas compartidas es de solo
+     * lectura, por lo que todas las hojas la usan a la vez.
+     */
+    private long readInParallel(ReadOnlySharedStringsTable sharedStrings, List<InputStream> sheets,
+                                Consumer<Contact> consumer) throws Exception {
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(sheetParallelism, sheets.size() - 1),
+                runnable -> new Thread(runnable, "sheet-reader-" + threadCount.incrementAndGet()));
+        List<Path> spills = Collections.synchronizedList(new ArrayList<>());
+        try {
+            List<BlockingQueue<Contact>> queues = new ArrayList<>();
+            List<Future<SheetResult>> pending = new ArrayList<>();
+            for (InputStream sheet : sheets.subList(1, sheets.size())) {
+                // Un hueco más que contactos en memoria: la marca de fin siempre cabe
+                BlockingQueue<Contact> queue = new ArrayBlockingQueue<>(SHEET_QUEUE_CAPACITY + 1);
+                queues.add(queue);
+                pending.add(pool.submit(() -> readSheetInto(sharedStrings, sheet, queue, spills)));
+            }
+
+            long skipped = readSheet(sharedStrings, sheets.getFirst(), consumer);
+            for (int i = 0; i < pending.size(); i++) {
+                BlockingQueue<Contact> queue = queues.get(i);
+                for (Contact contact = queue.take(); contact != END_OF_SHEET; contact = queue.take()) {
+                    consumer.accept(contact);
+                }
+                SheetResult result = awaitSheet(pending.get(i));
+                if (result.spill() != null) {
+                    replay(result, consumer);
+                }
+                skipped += result.skippedRows();
+            }
+            return skipped;
+        } finally {
+            pool.shutdownNow();
+            // Las hojas y el paquete se cierran al volver: antes hay que esperar a que ningún
+            // hilo siga dentro del parser
+            awaitTermination(pool);
+            for (Path spill : spills) {
+                Files.deleteIfExists(spill);
+            }
+        }
+    }
+
+    /**
+     * Lee la hoja dejando los primeros contactos en la cola y el resto en un archivo temporal,
+     * que se anota en {@code spills} para borrarlo pase lo que pase. Al terminar, también si
+     * falla, deja la marca de fin para que el hilo que llama no se quede esperando.
+     */
+    private static SheetResult readSheetInto(ReadOnlySharedStringsTable sharedStrings, InputStream sheet,
+                                             BlockingQueue<Contact> queue, List<Path> spills) throws Exception {
+        SheetSpill spill = new SheetSpill(spills);
+        try (spill) {
+            long skipped = readSheet(sharedStrings, sheet, contact -> {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("Lectura de hoja cancelada");
+                }
+                // Solo este hilo llena la cola, así que el hueco de la marca de fin no se ocupa
+                if (spill.count == 0 && queue.remainingCapacity() > 1 && queue.offer(contact)) {
+                    return;
+                }
+                spill.write(contact);
+            });
+            return new SheetResult(skipped, spill.file, spill.count);
+        } finally {
+            queue.offer(END_OF_SHEET);
+        }
+    }
+
+    private static void replay(SheetResult result, Consumer<Contact> consumer) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(result.spill()), IO_BUFFER_BYTES))) {
+            for (long i = 0; i < result.spilledRows(); i++) {
+                Contact contact = new Contact();
+                contact.setId(ExternalSorter.readString(in));
+                contact.setNombre(ExternalSorter.readString(in));
+                contact.setApellido(ExternalSorter.readString(in));
+                contact.setEmail(ExternalSorter.readString(in));
+                contact.setCodigoPostal(ExternalSorter.readString(in));
+                contact.setDireccion(ExternalSorter.readString(in));
+                consumer.accept(contact);
+            }
+        }
+        Files.deleteIfExists(result.spill());
+    }
+
+    private static void awaitTermination(ExecutorService pool) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static SheetResult awaitSheet(Future<SheetResult> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static long readSheet(ReadOnlySharedStringsTable sharedStrings, InputStream sheet,
+                                  Consumer<Contact> consumer) throws Exception {
+        XMLReader parser = XMLHelper.newXMLReader();
+        SheetHandler handler = new SheetHandler(sharedStrings, consumer);
+        parser.setContentHandler(handler);
+        parser.parse(new InputSource(sheet));
+        return handler.getSkippedRows();
+    }
+
+    /**
+     * Resultado de una hoja leída en paralelo: filas omitidas y, si no cupo en su cola, el
+     * archivo con los contactos restantes.
+     */
+    private record SheetResult(long skippedRows, Path spill, long spilledRows) {
+    }
+
+    /**
+     * Archivo temporal con los contactos de una hoja que no caben en su cola. Se crea con el
+     * primero que no cabe, y desde ese momento recibe todos los siguientes para no alterar el orden.
+     */
+    private static final class SheetSpill implements AutoCloseable {
+        private final List<Path> spills;
+        private Path file;
+        private DataOutputStream out;
+        private long count;
+
+        SheetSpill(List<Path> spills) {
+            this.spills = spills;
+        }
+
+        void write(Contact contact) {
+            try {
+                if (out == null) {
+                    file = Files.createTempFile("sheet-", ".bin");
+                    spills.add(file);
+                    out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), IO_BUFFER_BYTES));
+                }
+                ExternalSorter.writeString(out, contact.getId());
+                ExternalSorter.writeString(out, contact.getNombre());
+                ExternalSorter.writeString(out, contact.getApellido());
+                ExternalSorter.writeString(out, contact.getEmail());
+                ExternalSorter.writeString(out, contact.getCodigoPostal());
+                ExternalSorter.writeString(out, contact.getDireccion());
+                count++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Manejador SAX del XML de una hoja.
+     *
+     * Reproduce la lectura de celdas que hacía la versión basada en XSSFWorkbook:
+     * los textos se devuelven tal cual, los números se truncan a entero largo y
+     * cualquier otro tipo (fórmulas, booleanos, errores o celdas vacías) se lee como "".
+     */
+    static class SheetHandler extends DefaultHandler {
+
+        private final ReadOnlySharedStringsTable sharedStrings;
+        private final Consumer<Contact> consumer;
+        private final StringBuilder text = new StringBuilder();
+        private final String[] values = new String[COLUMNS];
+
+        private int rowCount;
+        private long skippedRows;
+        private int column;
+        private String cellType;
+        private boolean formula;
+        private boolean hasValue;
+        private boolean capturing;
+
+        SheetHandler(ReadOnlySharedStringsTable sharedStrings, Consumer<Contact> consumer) {
+            this.sharedStrings = sharedStrings;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row" -> {
+                    rowCount++;
+                    column = -1;
+                    Arrays.fill(values, "");
+                }
+                case "c" -> {
+                    String reference = attributes.getValue("r");
+                    column = reference != null ? columnIndex(reference) : column + 1;
+                    cellType = attributes.getValue("t");
+                    formula = false;
+                    hasValue = false;
+                    text.setLength(0);
+                }
+                case "f" -> formula = true;
+                case "v", "t" -> {
+                    capturing = true;
+                    hasValue = true;
+                }
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (capturing) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v", "t" -> capturing = false;
+                case "c" -> {
+                    if (column >= 0 && column < COLUMNS) {
+                        values[column] = cellValue();
+                    }
+                }
+                case "row" -> {
+                    // Omitir las dos primeras filas (cabeceras)
+                    if (rowCount > HEADER_ROWS) {
+                        emitRow();
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        private String cellValue() {
+            if (formula || !hasValue) {
+                return "";
+            }
+            String raw = text.toString();
+            if (cellType == null || cellType.equals("n")) {
+                return String.valueOf((long) Double.parseDouble(raw));
+            }
+            return switch (cellType) {
+                case "s" -> sharedStrings.getItemAt(Integer.parseInt(raw.trim())).getString();
+                case "inlineStr", "str" -> raw;
+                default -> "";
+            };
+        }
+
+        private void emitRow() {
+            Contact contact = new Contact();
+            contact.setId(values[0]);
+            contact.setNombre(values[1]);
+            contact.setApellido(values[2]);
+            contact.setEmail(values[3]);
+            contact.setCodigoPostal(values[4]);
+            contact.setDireccion(values[5]);
+
+            // Solo entregar si el contacto tiene un ID
+            if (!contact.getId().isBlank()) {
+                consumer.accept(contact);
+            } else {
+                skippedRows++;
+            }
+        }
+
+        long getSkippedRows() {
+            return skippedRows;
+        }
+
+        /**
+         * Convierte la parte de letras de una referencia ("C12") en índice de columna (2).
+         */
+        static int columnIndex(String reference) {
+            int index = 0;
+            for (int k = 0; k < reference.length(); k++) {
+                char ch = reference.charAt(k);
+                if (ch < 'A' || ch > 'Z') {
+                    break;
+                }
+                index = index * 26 + (ch - 'A' + 1);
+            }
+            return index - 1;
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.model.Contact;
+import com.osmi.dev.duplicatefinder.model.MatchPrecision;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Búsqueda de duplicados con memoria acotada para archivos que no caben en el heap.
+ *
+ * Por cada contacto leído se escribe un registro (clave de bloqueo, fila, valores de las reglas)
+ * por cada clave que tiene, sin guardar el contacto. Los registros se ordenan por clave con
+ * {@link ExternalSorter}, de modo que los de un mismo bloque quedan contiguos y basta puntuar
+ * entre sí los de cada bloque. Un par que comparte varias claves solo se puntúa en el bloque de
+ * la primera. Las coincidencias se vuelven a ordenar externamente por filas para entregarlas en el
+ * mismo orden que {@link ContactService#findDuplicates(List)}.
+ *
+ * En memoria solo están los búferes de ordenación y, como mucho, {@code maxBlockRows} registros
+ * del bloque que se está puntuando. Un bloque mayor (por ejemplo, un código postal y apellido muy
+ * repetidos) se vuelca a disco y se puntúa por tramos: cada tramo se carga en memoria y se compara
+ * consigo mismo y con el resto del bloque leído de forma secuencial. La memoria queda acotada,
+ * pero el tiempo de un bloque de b filas sigue siendo O(b²).
+ */
+final class ExternalSortMatcher implements AutoCloseable {
+
+    private static final Comparator<KeyRecord> KEY_ORDER = Comparator.comparingInt(KeyRecord::column)
+            .thenComparing(KeyRecord::key)
+            .thenComparingInt(KeyRecord::row);
+
+    private static final Comparator<PairRecord> PAIR_ORDER = Comparator.comparingInt(PairRecord::origen)
+            .thenComparingInt(PairRecord::coincidencia);
+
+    private static final int IO_BUFFER_BYTES = 64 * 1024;
+
+    private final ScoringRules rules;
+    private final int[] blockingValues;
+    private final Path directory;
+    private final ExternalSorter<KeyRecord> keys;
+    private final ExternalSorter<PairRecord> pairs;
+    private final KeyCodec keyCodec = new KeyCodec();
+    private final int maxBlockRows;
+    private int rows;
+
+    /**
+     * Destino de las coincidencias, en orden de filas.
+     */
+    interface PairSink {
+        void accept(String origenId, String coincidenciaId, int score, MatchPrecision precision) throws IOException;
+    }
+
+    /**
+     * @param runSize      registros que se ordenan en memoria antes de volcarlos a disco
+     * @param maxBlockRows registros de un bloque que se puntúan en memoria; los bloques mayores
+     *                     se puntúan por tramos desde disco
+     */
+    ExternalSortMatcher(ScoringRules rules, int runSize, int maxBlockRows) throws IOException {
+        if (maxBlockRows < 2) {
+            throw new IllegalArgumentException("El tamaño máximo de bloque debe ser al menos 2");
+        }
+        this.rules = rules;
+        this.maxBlockRows = maxBlockRows;
+        this.blockingValues = rules.blockingValues();
+        this.directory = Files.createTempDirectory("dedup-sort-");
+        this.keys = new ExternalSorter<>(keyCodec, KEY_ORDER, runSize, directory);
+        this.pairs = new ExternalSorter<>(new PairCodec(), PAIR_ORDER, runSize, directory);
+    }
+
+    /**
+     * Añade el contacto como siguiente fila.
+     */
+    void add(Contact contact) throws IOException {
+        String[] values = rules.values(contact);
+        for (int column = 0; column < blockingValues.length; column++) {
+            String key = values[blockingValues[column]];
+            if (key != null) {
+                keys.add(new KeyRecord(column, key, rows, contact.getId(), values));
+            }
+        }
+        rows++;
+    }
+
+    /**
+     * Puntúa los bloques y entrega las coincidencias ordenadas por fila de origen y de coincidencia.
+     */
+    void emitMatches(PairSink sink, ProgressListener listener) throws IOException {
+        Block block = new Block();
+        long[] compared = new long[1];
+        try {
+            keys.forEachSorted(record -> {
+                try {
+                    if (!block.accepts(record)) {
+                        compared[0] += block.scoreAndClear();
+                    }
+                    block.add(record);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            compared[0] += block.scoreAndClear();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        listener.pairsCompared(compared[0]);
+
+        try {
+            pairs.forEachSorted(pair -> {
+                try {
+                    sink.accept(pair.origenId(), pair.coincidenciaId(), pair.score(), rules.precision(pair.score()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Puntúa todos los pares de los registros, que llegan en orden ascendente de fila.
+     *
+     * @return número de pares comparados
+     */
+    private long scorePairs(List<KeyRecord> records) throws IOException {
+        long compared = 0;
+        for (int i = 0; i < records.size(); i++) {
+            for (int j = i + 1; j < records.size(); j++) {
+                compared += scorePair(records.get(i), records.get(j));
+            }
+        }
+        return compared;
+    }
+
+    /**
+     * Puntúa el par y lo guarda si es un duplicado.
+     *
+     * @return 1 si se comparó, 0 si ya se había puntuado en el bloque de otra clave
+     */
+    private int scorePair(KeyRecord origen, KeyRecord coincidencia) throws IOException {
+        if (sharesEarlierKey(origen, coincidencia)) {
+            return 0;
+        }
+        int minScore = rules.minDuplicateScore();
+        int score = rules.score(origen.values(), coincidencia.values(), minScore);
+        if (score >= minScore) {
+            pairs.add(new PairRecord(origen.row(), coincidencia.row(), score, origen.id(), coincidencia.id()));
+        }
+        return 1;
+    }
+
+    /**
+     * Si el par comparte una clave de una columna anterior, ya se puntuó en aquel bloque.
+     */
+    private boolean sharesEarlierKey(KeyRecord a, KeyRecord b) {
+        for (int column = 0; column < a.column(); column++) {
+            String key = a.values()[blockingValues[column]];
+            if (key != null && key.equals(b.values()[blockingValues[column]])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Borra los archivos temporales que queden.
+     */
+    @Override
+    public void close() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Registros de la clave que se está recorriendo. Hasta {@code maxBlockRows} se guardan en
+     * memoria; a partir de ahí todo el bloque pasa a un archivo temporal.
+     */
+    private final class Block {
+        private final List<KeyRecord> records = new ArrayList<>();
+        private KeyRecord first;
+        private Path spillFile;
+        private DataOutputStream spill;
+        private int spilled;
+
+        boolean accepts(KeyRecord record) {
+            return first == null || (first.column() == record.column() && first.key().equals(record.key()));
+        }
+
+        void add(KeyRecord record) throws IOException {
+            if (first == null) {
+                first = record;
+            }
+            if (spill != null) {
+                keyCodec.write(spill, record);
+                spilled++;
+                return;
+            }
+            records.add(record);
+            if (records.size() > maxBlockRows) {
+                spillFile = Files.createTempFile(directory, "block-", ".bin");
+                spill = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spillFile), IO_BUFFER_BYTES));
+                for (KeyRecord pending : records) {
+                    keyCodec.write(spill, pending);
+                }
+                spilled = records.size();
+                records.clear();
+            }
+        }
+
+        /**
+         * Puntúa el bloque y lo deja vacío para la siguiente clave.
+         *
+         * @return número de pares comparados
+         */
+        long scoreAndClear() throws IOException {
+            long compared;
+            if (spill == null) {
+                compared = scorePairs(records);
+            } else {
+                spill.close();
+                try {
+                    compared = scoreSpilled();
+                } finally {
+                    Files.deleteIfExists(spillFile);
+                }
+                spill = null;
+                spillFile = null;
+                spilled = 0;
+            }
+            records.clear();
+            first = null;
+            return compared;
+        }
+
+        /**
+         * Carga el bloque en tramos de {@code maxBlockRows} registros; cada tramo se puntúa
+         * consigo mismo y con los registros posteriores, que se leen de uno en uno.
+         */
+        private long scoreSpilled() throws IOException {
+            long compared = 0;
+            List<KeyRecord> chunk = new ArrayList<>(maxBlockRows);
+            for (int start = 0; start < spilled; start += maxBlockRows) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(spillFile), IO_BUFFER_BYTES))) {
+                    for (int i = 0; i < start; i++) {
+                        keyCodec.read(in);
+                    }
+                    chunk.clear();
+                    int end = Math.min(spilled, start + maxBlockRows);
+                    for (int i = start; i < end; i++) {
+                        chunk.add(keyCodec.read(in));
+                    }
+                    compared += scorePairs(chunk);
+                    for (int i = end; i < spilled; i++) {
+                        KeyRecord coincidencia = keyCodec.read(in);
+                        for (KeyRecord origen : chunk) {
+                            compared += scorePair(origen, coincidencia);
+                        }
+                    }
+                }
+            }
+            return compared;
+        }
+    }
+
+    private record KeyRecord(int column, String key, int row, String id, String[] values) {
+    }
+
+    private record PairRecord(int origen, int coincidencia, int score, String origenId, String coincidenciaId) {
+    }
+
+    /**
+     * La clave no se escribe: es uno de los valores del registro.
+     */
+    private final class KeyCodec implements ExternalSorter.Codec<KeyRecord> {
+        @Override
+        public void write(DataOutput out, KeyRecord record) throws IOException {
+            out.writeInt(record.column());
+            out.writeInt(record.row());
+            ExternalSorter.writeString(out, record.id());
+            out.writeInt(record.values().length);
+            for (String value : record.values()) {
+                ExternalSorter.writeString(out, value);
+            }
+        }
+
+        @Override
+        public KeyRecord read(DataInput in) throws IOException {
+            int column = in.readInt();
+            int row = in.readInt();
+            String id = ExternalSorter.readString(in);
+            String[] values = new String[in.readInt()];
+            for (int v = 0; v < values.length; v++) {
+                values[v] = ExternalSorter.readString(in);
+            }
+            return new KeyRecord(column, values[blockingValues[column]], row, id, values);
+        }
+    }
+
+    private static final class PairCodec implements ExternalSorter.Codec<PairRecord> {
+        @Override
+        public void write(DataOutput out, PairRecord record) throws IOException {
+            out.writeInt(record.origen());
+            out.writeInt(record.coincidencia());
+            out.writeInt(record.score());
+            ExternalSorter.writeString(out, record.origenId());
+            ExternalSorter.writeString(out, record.coincidenciaId());
+        }
+
+        @Override
+        public PairRecord read(DataInput in) throws IOException {
+            return new PairRecord(in.readInt(), in.readInt(), in.readInt(),
+                    ExternalSorter.readString(in), ExternalSorter.readString(in));
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Ordenación externa de registros con memoria acotada.
+ *
+ * Los registros se acumulan en un búfer de tamaño fijo; cada vez que se llena se ordena y se
+ * vuelca a un tramo en disco. Al recorrerlos, los tramos se mezclan de k en k con un montículo,
+ * leyendo cada uno de forma secuencial, así que la memoria depende del tamaño del búfer y del
+ * número de tramos, no del número de registros. Si todo cabe en un solo búfer no se toca el disco.
+ *
+ * No es seguro entre hilos.
+ */
+final class ExternalSorter<T> {
+
+    private static final int IO_BUFFER_BYTES = 64 * 1024;
+
+    /**
+     * Formato binario de un registro en los tramos.
+     */
+    interface Codec<T> {
+        void write(DataOutput out, T record) throws IOException;
+
+        T read(DataInput in) throws IOException;
+    }
+
+    private final Codec<T> codec;
+    private final Comparator<? super T> order;
+    private final int runSize;
+    private final Path directory;
+    private final List<T> buffer = new ArrayList<>();
+    private final List<Run> runs = new ArrayList<>();
+
+    /**
+     * @param runSize   registros que se ordenan en memoria antes de volcarlos a disco
+     * @param directory directorio donde se crean los tramos; quien lo crea se encarga de borrarlo
+     */
+    ExternalSorter(Codec<T> codec, Comparator<? super T> order, int runSize, Path directory) {
+        if (runSize < 1) {
+            throw new IllegalArgumentException("El tamaño de tramo debe ser positivo");
+        }
+        this.codec = codec;
+        this.order = order;
+        this.runSize = runSize;
+        this.directory = directory;
+    }
+
+    void add(T record) throws IOException {
+        buffer.add(record);
+        if (buffer.size() == runSize) {
+            spill();
+        }
+    }
+
+    /** Número de tramos volcados a disco hasta ahora. */
+    int runCount() {
+        return runs.size();
+    }
+
+    private void spill() throws IOException {
+        buffer.sort(order);
+        Path file = Files.createTempFile(directory, "run-", ".bin");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), IO_BUFFER_BYTES))) {
+            for (T record : buffer) {
+                codec.write(out, record);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        runs.add(new Run(file, buffer.size()));
+        buffer.clear();
+    }
+
+    /**
+     * Entrega todos los registros añadidos en orden. Solo se puede llamar una vez; los tramos
+     * se borran a medida que se agotan y, si la entrega falla, todos al salir.
+     */
+    void forEachSorted(Consumer<T> action) throws IOException {
+        if (runs.isEmpty()) {
+            buffer.sort(order);
+            buffer.forEach(action);
+            buffer.clear();
+            return;
+        }
+        if (!buffer.isEmpty()) {
+            spill();
+        }
+
+        // Todos los lectores abiertos, también el que se acaba de sacar del montículo
+        List<RunReader> readers = new ArrayList<>(runs.size());
+        PriorityQueue<RunReader> heads = new PriorityQueue<>(runs.size(), (a, b) -> order.compare(a.head, b.head));
+        Throwable failure = null;
+        try {
+            for (Run run : runs) {
+                RunReader reader = new RunReader(run);
+                readers.add(reader);
+                if (reader.advance()) {
+                    heads.add(reader);
+                }
+            }
+            while (!heads.isEmpty()) {
+                RunReader reader = heads.poll();
+                action.accept(reader.head);
+                if (reader.advance()) {
+                    heads.add(reader);
+                }
+            }
+        } catch (Throwable t) {
+            failure = t;
+            throw t;
+        } finally {
+            release(readers, failure);
+        }
+    }
+
+    /**
+     * Cierra todos los lectores y borra todos los tramos, también los que no llegaron a abrirse.
+     * Un fallo al liberar no interrumpe el resto: se añade como suprimido al error que ya se estaba
+     * propagando o, si no lo había, se lanza al final.
+     */
+    private void release(List<RunReader> readers, Throwable failure) throws IOException {
+        IOException error = null;
+        for (RunReader reader : readers) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                error = collect(error, e);
+            }
+        }
+        for (Run run : runs) {
+            try {
+                Files.deleteIfExists(run.file());
+            } catch (IOException e) {
+                error = collect(error, e);
+            }
+        }
+        runs.clear();
+        if (error != null) {
+            if (failure == null) {
+                throw error;
+            }
+            failure.addSuppressed(error);
+        }
+    }
+
+    private static IOException collect(IOException first, IOException next) {
+        if (first == null) {
+            return next;
+        }
+        first.addSuppressed(next);
+        return first;
+    }
+
+    /**
+     * Escribe una cadena con su longitud en bytes UTF-8 delante; -1 para null.
+     */
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private record Run(Path file, int records) {
+    }
+
+    /**
+     * Lector secuencial de un tramo con su registro actual.
+     */
+    private final class RunReader {
+        private final Run run;
+        private final DataInputStream in;
+        private int remaining;
+        private T head;
+
+        RunReader(Run run) throws IOException {
+            this.run = run;
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run.file()), IO_BUFFER_BYTES));
+            this.remaining = run.records();
+        }
+
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                close();
+                return false;
+            }
+            head = codec.read(in);
+            remaining--;
+            return true;
+        }
+
+        void close() throws IOException {
+            try {
+                in.close();
+            } finally {
+                Files.deleteIfExists(run.file());
+            }
+        }
+    }
+}
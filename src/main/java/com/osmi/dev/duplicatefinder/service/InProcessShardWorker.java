@@ -0,0 +1,21 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.model.MatchQuery;
+
+/**
+ * Worker que puntúa el fragmento en la misma JVM con {@link ContactService}. Los fragmentos
+ * respetan el tope de búsquedas simultáneas del servicio.
+ */
+final class InProcessShardWorker implements ShardWorker {
+
+    private final ContactService contactService;
+
+    InProcessShardWorker(ContactService contactService) {
+        this.contactService = contactService;
+    }
+
+    @Override
+    public Result score(Shard shard, MatchQuery query) {
+        return contactService.scoreShard(shard, query);
+    }
+}
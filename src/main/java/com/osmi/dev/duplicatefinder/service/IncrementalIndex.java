@@ -0,0 +1,140 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.model.Contact;
+import com.osmi.dev.duplicatefinder.model.DuplicateMatch;
+import com.osmi.dev.duplicatefinder.model.MatchPrecision;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Índice de bloqueo que crece contacto a contacto.
+ *
+ * Usa las mismas claves que {@link BlockingIndex}, pero los diccionarios y los bloques se
+ * conservan entre llamadas: cada contacto nuevo solo se compara con los miembros de sus bloques,
+ * de modo que añadir un lote cuesta lo que sus candidatos y no lo que la lista completa.
+ *
+ * Si se crea para sustituir ids conocidos, un contacto con un id ya indexado es una versión
+ * nueva de ese contacto: su fila anterior sale de los bloques antes de añadirlo, así que no
+ * coincide consigo mismo y el resto ya no lo encuentra con sus datos antiguos.
+ *
+ * No es seguro entre hilos; {@link ContactIndexService} serializa el acceso.
+ */
+final class IncrementalIndex {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final ScoringRules rules;
+    private final ContactKeys keys;
+    private final List<String> ids = new ArrayList<>();
+    // [columna de bloqueo][id de clave] -> filas con esa clave, en orden ascendente
+    private final List<List<IntList>> blocks = new ArrayList<>();
+    // Estado del recorrido de candidatos, reutilizado en cada contacto añadido
+    private final BlockingIndex.Cursor cursor;
+    // id -> fila vigente de ese id; null si no se sustituyen ids conocidos
+    private final Map<String, Integer> rowById;
+    private int replaced;
+
+    IncrementalIndex(ScoringRules rules) {
+        this(rules, false);
+    }
+
+    /**
+     * @param replaceKnownIds si un contacto con un id ya indexado sustituye a su versión anterior
+     */
+    IncrementalIndex(ScoringRules rules, boolean replaceKnownIds) {
+        this.rules = rules;
+        this.keys = new ContactKeys(rules, 0);
+        this.rowById = replaceKnownIds ? new HashMap<>() : null;
+        for (int column = 0; column < keys.blockingColumns(); column++) {
+            blocks.add(new ArrayList<>());
+        }
+        this.cursor = new BlockingIndex.Cursor(keys.blockingColumns());
+    }
+
+    /**
+     * Contactos vigentes, sin contar las versiones sustituidas.
+     */
+    int size() {
+        return ids.size() - replaced;
+    }
+
+    /**
+     * Ids de los contactos indexados, por fila, incluidas las filas sustituidas. Crece a medida
+     * que se añaden contactos.
+     */
+    List<String> ids() {
+        return ids;
+    }
+
+    /**
+     * Añade el contacto y entrega sus coincidencias con los contactos ya indexados, con el
+     * contacto anterior como origen, igual que en {@link ContactService#findDuplicates(List)}.
+     *
+     * @return número de candidatos comparados
+     */
+    int add(Contact contact, Consumer<DuplicateMatch> sink) {
+        return add(contact, (origen, coincidencia, score, precision) ->
+                sink.accept(new DuplicateMatch(ids.get(origen), ids.get(coincidencia), precision.getLabel(), score)));
+    }
+
+    /**
+     * Igual que {@link #add(Contact, Consumer)}, entregando las filas de cada coincidencia.
+     */
+    int add(Contact contact, MatchCollector matches) {
+        int row = keys.add(contact);
+        ids.add(contact.getId());
+        if (rowById != null) {
+            Integer previous = rowById.put(contact.getId(), row);
+            if (previous != null) {
+                remove(previous);
+            }
+        }
+
+        int[][] candidates = cursor.blocks;
+        int[] position = cursor.position;
+        int[] end = cursor.end;
+        for (int column = 0; column < candidates.length; column++) {
+            position[column] = 0;
+            int key = keys.blockingColumn(column)[row];
+            if (key == ContactKeys.NO_KEY) {
+                candidates[column] = EMPTY;
+                end[column] = 0;
+                continue;
+            }
+            // Los ids son densos: una clave nueva es siempre la siguiente
+            List<IntList> byKey = blocks.get(column);
+            if (key == byKey.size()) {
+                byKey.add(new IntList());
+            }
+            IntList block = byKey.get(key);
+            candidates[column] = block.elements();
+            end[column] = block.size();
+            block.add(row);
+        }
+
+        return BlockingIndex.forEachInUnion(candidates, position, end, previous -> {
+            int score = rules.score(keys, previous, row, rules.minDuplicateScore());
+            MatchPrecision precision = rules.precision(score);
+            if (precision != null) {
+                matches.add(previous, row, score, precision);
+            }
+        });
+    }
+
+    /**
+     * Saca la fila de todos sus bloques; su id sigue en {@link #ids()} para no mover las demás.
+     */
+    private void remove(int row) {
+        for (int column = 0; column < blocks.size(); column++) {
+            int key = keys.blockingColumn(column)[row];
+            if (key != ContactKeys.NO_KEY) {
+                blocks.get(column).get(key).removeSorted(row);
+            }
+        }
+        replaced++;
+    }
+}
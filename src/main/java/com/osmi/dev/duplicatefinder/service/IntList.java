@@ -0,0 +1,55 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import java.util.Arrays;
+
+/**
+ * Lista de enteros primitivos que crece duplicando su capacidad, sin cajas Integer.
+ */
+final class IntList {
+
+    private int[] elements;
+    private int size;
+
+    IntList() {
+        this(4);
+    }
+
+    IntList(int capacity) {
+        this.elements = new int[Math.max(capacity, 1)];
+    }
+
+    void add(int value) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, elements.length * 2);
+        }
+        elements[size++] = value;
+    }
+
+    /**
+     * Quita {@code value} de una lista ordenada de forma ascendente, si está.
+     */
+    void removeSorted(int value) {
+        int index = Arrays.binarySearch(elements, 0, size, value);
+        if (index >= 0) {
+            System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+            size--;
+        }
+    }
+
+    int get(int index) {
+        return elements[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Arreglo interno; solo son válidas las posiciones menores que {@link #size()}.
+     * Al crecer se sustituye por otro, de modo que una referencia anterior sigue viendo
+     * los elementos que tenía.
+     */
+    int[] elements() {
+        return elements;
+    }
+}
@@ -0,0 +1,11 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.model.MatchPrecision;
+
+/**
+ * Destino de las coincidencias mientras se puntúa, identificadas por sus filas.
+ */
+interface MatchCollector {
+
+    void add(int origenRow, int coincidenciaRow, int score, MatchPrecision precision);
+}
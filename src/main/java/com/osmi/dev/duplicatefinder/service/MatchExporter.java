@@ -0,0 +1,81 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.osmi.dev.duplicatefinder.model.DuplicateMatch;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Escribe coincidencias directamente sobre la respuesta, una por línea, sin construir
+ * el documento completo en memoria.
+ */
+@Service
+public class MatchExporter {
+
+    static final String CSV_HEADER = "ContactID Origen,ContactID Coincidencia,Precisión,Puntuación";
+
+    private final ObjectMapper objectMapper;
+
+    public MatchExporter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Un objeto JSON por línea (NDJSON).
+     */
+    public void writeNdjson(Iterable<DuplicateMatch> matches, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            for (DuplicateMatch match : matches) {
+                generator.writeStartObject();
+                generator.writeStringField("contactIdOrigen", match.getContactIdOrigen());
+                generator.writeStringField("contactIdCoincidencia", match.getContactIdCoincidencia());
+                generator.writeStringField("precision", match.getPrecision());
+                generator.writeNumberField("score", match.getScore());
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    /**
+     * CSV con las mismas columnas que la tabla de resultados.
+     */
+    public void writeCsv(Iterable<DuplicateMatch> matches, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        for (DuplicateMatch match : matches) {
+            writer.write(csvField(match.getContactIdOrigen()));
+            writer.write(',');
+            writer.write(csvField(match.getContactIdCoincidencia()));
+            writer.write(',');
+            writer.write(csvField(match.getPrecision()));
+            writer.write(',');
+            writer.write(Integer.toString(match.getScore()));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    /**
+     * Entrecomilla el campo solo si contiene separadores, comillas o saltos de línea.
+     */
+    static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
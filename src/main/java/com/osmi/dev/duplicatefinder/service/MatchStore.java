@@ -0,0 +1,119 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.model.DuplicateMatch;
+import com.osmi.dev.duplicatefinder.model.MatchPrecision;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Lista de coincidencias guardada en columnas de tipos primitivos.
+ *
+ * Cada coincidencia ocupa dos filas y una puntuación en arreglos de int más la precisión en un
+ * byte, unos 13 bytes frente a los más de 100 de un {@link DuplicateMatch} con sus cadenas. Los
+ * ids se guardan una sola vez por contacto. Los {@link DuplicateMatch} se crean al leer cada
+ * posición, solo cuando se pintan o se exportan. Es de solo lectura para quien la recibe.
+ */
+final class MatchStore extends AbstractList<DuplicateMatch> implements RandomAccess, MatchCollector {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final MatchPrecision[] PRECISIONS = MatchPrecision.values();
+
+    // Fila -> id del contacto
+    private final List<String> ids;
+    private int[] origen = new int[MIN_CAPACITY];
+    private int[] coincidencia = new int[MIN_CAPACITY];
+    private int[] scores = new int[MIN_CAPACITY];
+    private byte[] precisions = new byte[MIN_CAPACITY];
+    private int size;
+
+    MatchStore(String[] ids) {
+        this(Arrays.asList(ids));
+    }
+
+    /**
+     * @param ids ids por fila; puede seguir creciendo mientras se añaden coincidencias, como en
+     *            el modo en tubería
+     */
+    MatchStore(List<String> ids) {
+        this.ids = ids;
+    }
+
+    @Override
+    public void add(int origenRow, int coincidenciaRow, int score, MatchPrecision precision) {
+        ensureCapacity(size + 1);
+        origen[size] = origenRow;
+        coincidencia[size] = coincidenciaRow;
+        scores[size] = score;
+        precisions[size] = (byte) precision.ordinal();
+        size++;
+    }
+
+    /**
+     * Añade al final las coincidencias de otro almacén sobre los mismos contactos.
+     */
+    void append(MatchStore other) {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.origen, 0, origen, size, other.size);
+        System.arraycopy(other.coincidencia, 0, coincidencia, size, other.size);
+        System.arraycopy(other.scores, 0, scores, size, other.size);
+        System.arraycopy(other.precisions, 0, precisions, size, other.size);
+        size += other.size;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= origen.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, origen.length * 2);
+        origen = Arrays.copyOf(origen, newCapacity);
+        coincidencia = Arrays.copyOf(coincidencia, newCapacity);
+        scores = Arrays.copyOf(scores, newCapacity);
+        precisions = Arrays.copyOf(precisions, newCapacity);
+    }
+
+    int origenRow(int index) {
+        return origen[index];
+    }
+
+    int coincidenciaRow(int index) {
+        return coincidencia[index];
+    }
+
+    int score(int index) {
+        return scores[index];
+    }
+
+    MatchPrecision precision(int index) {
+        return PRECISIONS[precisions[index]];
+    }
+
+    /**
+     * Número de coincidencias con la precisión indicada, sin crear ningún objeto.
+     */
+    long count(MatchPrecision precision) {
+        byte value = (byte) precision.ordinal();
+        long count = 0;
+        for (int i = 0; i < size; i++) {
+            if (precisions[i] == value) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public DuplicateMatch get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Índice " + index + " fuera de rango (tamaño " + size + ")");
+        }
+        return new DuplicateMatch(ids.get(origen[index]), ids.get(coincidencia[index]), precision(index).getLabel(), scores[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,24 @@
+package com.osmi.dev.duplicatefinder.service;
+
+/**
+ * Recibe el avance del procesamiento de un archivo. Las implementaciones deben ser seguras
+ * entre hilos, ya que la puntuación en paralelo informa desde varios hilos a la vez.
+ */
+public interface ProgressListener {
+
+    /** Listener que ignora todos los avisos. */
+    ProgressListener NONE = new ProgressListener() {
+    };
+
+    /**
+     * Se invoca por cada contacto válido leído del archivo.
+     */
+    default void rowParsed() {
+    }
+
+    /**
+     * Se invoca tras comparar un lote de pares candidatos.
+     */
+    default void pairsCompared(long pairs) {
+    }
+}
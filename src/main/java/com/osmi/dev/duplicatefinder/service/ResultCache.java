@@ -0,0 +1,121 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.config.DuplicateFinderProperties;
+import com.osmi.dev.duplicatefinder.model.DuplicateGroup;
+import com.osmi.dev.duplicatefinder.model.DuplicateMatch;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché de resultados de procesamiento, indexada por el SHA-256 del archivo subido más la
+ * configuración de puntuación, para que volver a subir el mismo archivo no repita el trabajo.
+ *
+ * Es un LinkedHashMap en orden de acceso: al superar el máximo de entradas se descarta la usada
+ * hace más tiempo, y las entradas con más antigüedad que el TTL se ignoran al leerlas.
+ */
+@Component
+public class ResultCache implements MeterBinder {
+
+    /**
+     * Resultado guardado junto con el progreso que produjo, para mostrarlo igual al reutilizarlo.
+     */
+    public record CachedResult(List<DuplicateMatch> matches, List<DuplicateGroup> groups,
+                               long rowsParsed, long pairsCompared) {
+    }
+
+    private record Entry(CachedResult result, Instant storedAt) {
+    }
+
+    private final boolean enabled;
+    private final Duration ttl;
+    private final Clock clock;
+    private final Map<String, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    public ResultCache(DuplicateFinderProperties properties) {
+        this(properties.getCache(), Clock.systemUTC());
+    }
+
+    ResultCache(DuplicateFinderProperties.Cache config, Clock clock) {
+        this.enabled = config.isEnabled();
+        this.ttl = config.getTtl();
+        this.clock = clock;
+        int maxEntries = config.getMaxEntries();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized Optional<CachedResult> get(String key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Entry entry = entries.get(key);
+        if (entry != null && entry.storedAt().plus(ttl).isBefore(clock.instant())) {
+            entries.remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(entry.result());
+    }
+
+    public synchronized void put(String key, CachedResult result) {
+        if (enabled) {
+            entries.put(key, new Entry(result, clock.instant()));
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Publica aciertos, fallos y tamaño de la caché junto con el resto de métricas.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("duplicatefinder.cache.hits", hits, AtomicLong::get)
+                .description("Subidas resueltas con un resultado en caché")
+                .register(registry);
+        FunctionCounter.builder("duplicatefinder.cache.misses", misses, AtomicLong::get)
+                .description("Subidas que no estaban en caché")
+                .register(registry);
+        Gauge.builder("duplicatefinder.cache.size", this, ResultCache::size)
+                .description("Resultados guardados en caché")
+                .register(registry);
+    }
+}
@@ -0,0 +1,375 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.config.DuplicateFinderProperties;
+import com.osmi.dev.duplicatefinder.config.DuplicateFinderProperties.Comparison;
+import com.osmi.dev.duplicatefinder.config.DuplicateFinderProperties.ContactField;
+import com.osmi.dev.duplicatefinder.model.Contact;
+import com.osmi.dev.duplicatefinder.model.MatchPrecision;
+import org.apache.commons.text.similarity.LevenshteinDistance;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Reglas de puntuación compiladas a partir de la configuración.
+ *
+ * Se compilan una sola vez al arrancar en arreglos planos, ordenados de la regla más barata a la
+ * más cara: primero las de igualdad y prefijo, que en {@link ContactKeys} se reducen a comparar
+ * dos ids de diccionario, de mayor a menor peso; después las de Levenshtein, de menor a mayor
+ * distancia máxima. Al puntuar un par se deja de evaluar en cuanto, aun sumando todas las
+ * reglas restantes, ya no puede alcanzar la puntuación buscada.
+ *
+ * Las reglas de igualdad y prefijo son además claves de bloqueo: un par solo se compara si
+ * comparte alguna, o la clave fonética cuando la comparación aproximada está activada. Las reglas
+ * de Levenshtein suman puntos a esos candidatos pero no generan candidatos por sí solas.
+ */
+final class ScoringRules {
+
+    private final Rule[] keyRules;
+    private final Rule[] textRules;
+
+    // Copias planas de pesos y distancias para el bucle de puntuación
+    private final int[] keyWeights;
+    private final int[] textWeights;
+    private final int[] textMaxDistances;
+    private final LevenshteinDistance[] textDistances;
+
+    // [i] -> puntos máximos que suman las reglas desde la i-ésima (claves y después textos)
+    private final int[] remaining;
+
+    private final boolean phoneticBlocking;
+    private final int altaThreshold;
+    private final int bajaThreshold;
+    private final String fingerprint;
+
+    private ScoringRules(List<Rule> rules, boolean phoneticBlocking, int altaThreshold, int bajaThreshold,
+                         String fingerprint) {
+        List<Rule> keys = new ArrayList<>();
+        List<Rule> texts = new ArrayList<>();
+        for (Rule rule : rules) {
+            (rule.comparison() == Comparison.LEVENSHTEIN ? texts : keys).add(rule);
+        }
+        keys.sort(Comparator.comparingInt(Rule::weight).reversed());
+        texts.sort(Comparator.comparingInt(Rule::maxDistance));
+        this.keyRules = keys.toArray(Rule[]::new);
+        this.textRules = texts.toArray(Rule[]::new);
+
+        this.keyWeights = new int[keyRules.length];
+        for (int r = 0; r < keyRules.length; r++) {
+            keyWeights[r] = keyRules[r].weight();
+        }
+        this.textWeights = new int[textRules.length];
+        this.textMaxDistances = new int[textRules.length];
+        this.textDistances = new LevenshteinDistance[textRules.length];
+        for (int t = 0; t < textRules.length; t++) {
+            textWeights[t] = textRules[t].weight();
+            textMaxDistances[t] = textRules[t].maxDistance();
+            textDistances[t] = new LevenshteinDistance(textRules[t].maxDistance());
+        }
+
+        this.remaining = new int[keyRules.length + textRules.length + 1];
+        for (int i = remaining.length - 2; i >= 0; i--) {
+            int weight = i < keyRules.length ? keyWeights[i] : textWeights[i - keyRules.length];
+            remaining[i] = remaining[i + 1] + weight;
+        }
+
+        this.phoneticBlocking = phoneticBlocking;
+        this.altaThreshold = altaThreshold;
+        this.bajaThreshold = bajaThreshold;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Compila las reglas configuradas, o las de siempre si no hay ninguna, más las de nombre y
+     * dirección si la comparación aproximada está activada.
+     *
+     * @throws IllegalArgumentException si una regla no tiene campos o tiene peso negativo, si el
+     *                                  umbral alto es menor que el bajo o si no queda ninguna clave
+     *                                  de bloqueo (solo reglas de Levenshtein sin la comparación
+     *                                  aproximada), con la que nunca se compararía ningún par
+     */
+    static ScoringRules compile(DuplicateFinderProperties properties) {
+        DuplicateFinderProperties.Scoring scoring = properties.getScoring();
+        DuplicateFinderProperties.Fuzzy fuzzy = properties.getFuzzy();
+        if (scoring.getAltaThreshold() < scoring.getBajaThreshold()) {
+            throw new IllegalArgumentException("El umbral alto no puede ser menor que el bajo");
+        }
+
+        List<Rule> rules = new ArrayList<>();
+        if (scoring.getRules().isEmpty()) {
+            rules.add(Rule.of(List.of(ContactField.EMAIL), Comparison.CASE_INSENSITIVE, 90, 0, 0));
+            rules.add(Rule.of(List.of(ContactField.CODIGO_POSTAL, ContactField.APELLIDO), Comparison.CASE_INSENSITIVE, 50, 0, 0));
+        } else {
+            for (DuplicateFinderProperties.Rule rule : scoring.getRules()) {
+                rules.add(Rule.of(rule.getFields(), rule.getComparator(), rule.getWeight(),
+                        rule.getMaxDistance(), rule.getPrefixLength()));
+            }
+        }
+        if (fuzzy.isEnabled()) {
+            rules.add(Rule.of(List.of(ContactField.NOMBRE), Comparison.LEVENSHTEIN, fuzzy.getNombreScore(),
+                    fuzzy.getNombreMaxDistance(), 0));
+            rules.add(Rule.of(List.of(ContactField.DIRECCION), Comparison.LEVENSHTEIN, fuzzy.getDireccionScore(),
+                    fuzzy.getDireccionMaxDistance(), 0));
+        }
+
+        if (!fuzzy.isEnabled() && rules.stream().allMatch(rule -> rule.comparison() == Comparison.LEVENSHTEIN)) {
+            throw new IllegalArgumentException("Las reglas de puntuación necesitan al menos una regla exacta, "
+                    + "sin mayúsculas o de prefijo, o la comparación aproximada activada, para elegir los pares candidatos");
+        }
+
+        String fingerprint = fuzzy.isEnabled() ? scoring + "|" + fuzzy : scoring.toString();
+        return new ScoringRules(rules, fuzzy.isEnabled(), scoring.getAltaThreshold(), scoring.getBajaThreshold(),
+                fingerprint);
+    }
+
+    /** Reglas de igualdad y prefijo, que se guardan como columnas de ids en {@link ContactKeys}. */
+    int keyRuleCount() {
+        return keyRules.length;
+    }
+
+    /** Reglas de Levenshtein, que se guardan como columnas de texto normalizado. */
+    int textRuleCount() {
+        return textRules.length;
+    }
+
+    String keyValue(int rule, Contact contact) {
+        return keyRules[rule].value(contact);
+    }
+
+    String textValue(int rule, Contact contact) {
+        return textRules[rule].value(contact);
+    }
+
+    /** Si además de las reglas se bloquea por la clave fonética del apellido. */
+    boolean phoneticBlocking() {
+        return phoneticBlocking;
+    }
+
+    /** Puntuación máxima de un par: la suma de los pesos de todas las reglas. */
+    int maxScore() {
+        return remaining[0];
+    }
+
+    /**
+     * Regla de clave sin la que un par no puede llegar a {@code minScore}, o -1 si no hay ninguna.
+     * Con ella basta indexar esa columna, porque los pares que no la comparten nunca puntúan lo
+     * suficiente.
+     */
+    int requiredKeyRule(int minScore) {
+        for (int r = 0; r < keyRules.length; r++) {
+            if (maxScore() - keyWeights[r] < minScore) {
+                return r;
+            }
+        }
+        return -1;
+    }
+
+    /** Menor puntuación que se considera duplicado. */
+    int minDuplicateScore() {
+        return bajaThreshold + 1;
+    }
+
+    /**
+     * Precisión de una puntuación: alta por encima del umbral alto, baja por encima del bajo
+     * y null si el par no se considera duplicado.
+     */
+    MatchPrecision precision(int score) {
+        if (score > altaThreshold) {
+            return MatchPrecision.ALTA;
+        }
+        return score > bajaThreshold ? MatchPrecision.BAJA : null;
+    }
+
+    int altaThreshold() {
+        return altaThreshold;
+    }
+
+    int bajaThreshold() {
+        return bajaThreshold;
+    }
+
+    /** Describe las reglas y los umbrales; forma parte de la huella de puntuación del servicio. */
+    String fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Puntuación completa del par de filas.
+     */
+    int score(ContactKeys keys, int a, int b) {
+        return score(keys, a, b, Integer.MIN_VALUE);
+    }
+
+    /**
+     * Puntuación del par de filas si alcanza {@code floor}. Si deja de poder alcanzarlo se
+     * devuelve lo sumado hasta ese momento, que siempre es menor que {@code floor}.
+     */
+    int score(ContactKeys keys, int a, int b, int floor) {
+        int score = 0;
+        int[][] keyColumns = keys.keyColumns;
+        for (int r = 0; r < keyWeights.length; r++) {
+            if (score + remaining[r] < floor) {
+                return score;
+            }
+            int[] column = keyColumns[r];
+            int key = column[a];
+            if (key != ContactKeys.NO_KEY && key == column[b]) {
+                score += keyWeights[r];
+            }
+        }
+        String[][] textColumns = keys.textColumns;
+        for (int t = 0; t < textWeights.length; t++) {
+            if (score + remaining[keyWeights.length + t] < floor) {
+                return score;
+            }
+            String[] column = textColumns[t];
+            if (similar(textDistances[t], textMaxDistances[t], column[a], column[b])) {
+                score += textWeights[t];
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Valores del contacto para todas las reglas, en el orden en que se evalúan: primero las de
+     * clave, después las de Levenshtein y al final la clave fonética si se bloquea por ella.
+     * Es la misma información que guarda una fila de {@link ContactKeys}, pero sin diccionarios.
+     */
+    String[] values(Contact contact) {
+        String[] values = new String[keyRules.length + textRules.length + (phoneticBlocking ? 1 : 0)];
+        for (int r = 0; r < keyRules.length; r++) {
+            values[r] = keyRules[r].value(contact);
+        }
+        for (int t = 0; t < textRules.length; t++) {
+            values[keyRules.length + t] = textRules[t].value(contact);
+        }
+        if (phoneticBlocking) {
+            values[values.length - 1] = ContactKeys.phoneticValue(contact, ContactNormalizer.text(contact.getNombre()));
+        }
+        return values;
+    }
+
+    /**
+     * Posición en {@link #values(Contact)} de cada clave de bloqueo, en el mismo orden que las
+     * columnas de {@link ContactKeys#blockingColumn(int)}.
+     */
+    int[] blockingValues() {
+        int[] positions = new int[keyRules.length + (phoneticBlocking ? 1 : 0)];
+        for (int r = 0; r < keyRules.length; r++) {
+            positions[r] = r;
+        }
+        if (phoneticBlocking) {
+            positions[keyRules.length] = keyRules.length + textRules.length;
+        }
+        return positions;
+    }
+
+    /**
+     * Igual que {@link #score(ContactKeys, int, int, int)} a partir de los valores de
+     * {@link #values(Contact)} de cada contacto.
+     */
+    int score(String[] a, String[] b, int floor) {
+        int score = 0;
+        for (int r = 0; r < keyWeights.length; r++) {
+            if (score + remaining[r] < floor) {
+                return score;
+            }
+            if (a[r] != null && a[r].equals(b[r])) {
+                score += keyWeights[r];
+            }
+        }
+        for (int t = 0; t < textWeights.length; t++) {
+            int position = keyWeights.length + t;
+            if (score + remaining[position] < floor) {
+                return score;
+            }
+            if (similar(textDistances[t], textMaxDistances[t], a[position], b[position])) {
+                score += textWeights[t];
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Con umbral, LevenshteinDistance deja de calcular en cuanto la distancia lo supera, por lo que
+     * el coste es O(umbral · longitud). Antes se descartan los pares cuya diferencia de longitud ya
+     * supera el umbral.
+     */
+    private static boolean similar(LevenshteinDistance distance, int maxDistance, String left, String right) {
+        if (left == null || right == null || Math.abs(left.length() - right.length()) > maxDistance) {
+            return false;
+        }
+        // apply devuelve -1 cuando la distancia supera el umbral
+        return left.equals(right) || distance.apply(left, right) >= 0;
+    }
+
+    /**
+     * Una regla ya validada: suma {@code weight} si los valores de sus campos coinciden según
+     * {@code comparison}.
+     */
+    private record Rule(ContactField[] fields, Comparison comparison, int weight, int maxDistance, int prefixLength) {
+
+        static Rule of(List<ContactField> fields, Comparison comparison, int weight, int maxDistance, int prefixLength) {
+            if (fields == null || fields.isEmpty() || comparison == null) {
+                throw new IllegalArgumentException("Cada regla de puntuación necesita campos y comparador");
+            }
+            if (weight < 0 || maxDistance < 0 || prefixLength < 0) {
+                throw new IllegalArgumentException("Los pesos, distancias y prefijos de las reglas no pueden ser negativos");
+            }
+            return new Rule(fields.toArray(ContactField[]::new), comparison, weight, maxDistance, prefixLength);
+        }
+
+        /**
+         * Valor comparado del contacto, o null si falta alguno de los campos. Con varios campos
+         * se unen en un solo valor.
+         */
+        String value(Contact contact) {
+            if (fields.length == 1) {
+                return fieldValue(contact, fields[0]);
+            }
+            StringBuilder joined = new StringBuilder();
+            for (int f = 0; f < fields.length; f++) {
+                String value = fieldValue(contact, fields[f]);
+                if (value == null) {
+                    return null;
+                }
+                if (f > 0) {
+                    joined.append(comparison == Comparison.LEVENSHTEIN ? ' ' : '\u0000');
+                }
+                joined.append(value);
+            }
+            return joined.toString();
+        }
+
+        private String fieldValue(Contact contact, ContactField field) {
+            String raw = switch (field) {
+                case NOMBRE -> contact.getNombre();
+                case APELLIDO -> contact.getApellido();
+                case EMAIL -> contact.getEmail();
+                case CODIGO_POSTAL -> contact.getCodigoPostal();
+                case DIRECCION -> contact.getDireccion();
+            };
+            return switch (comparison) {
+                case EXACT -> raw == null || raw.isEmpty() ? null : raw;
+                case CASE_INSENSITIVE, LEVENSHTEIN -> normalize(field, raw);
+                case PREFIX -> {
+                    String normalized = normalize(field, raw);
+                    if (normalized == null || normalized.isEmpty()) {
+                        yield null;
+                    }
+                    yield normalized.length() <= prefixLength ? normalized : normalized.substring(0, prefixLength);
+                }
+            };
+        }
+
+        private static String normalize(ContactField field, String raw) {
+            return switch (field) {
+                case EMAIL -> ContactNormalizer.email(raw);
+                case APELLIDO -> ContactNormalizer.apellido(raw);
+                case CODIGO_POSTAL -> ContactNormalizer.codigoPostal(raw);
+                case NOMBRE, DIRECCION -> ContactNormalizer.text(raw);
+            };
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.model.Contact;
+import com.osmi.dev.duplicatefinder.model.DuplicateMatch;
+import com.osmi.dev.duplicatefinder.model.JobMode;
+import com.osmi.dev.duplicatefinder.model.MatchPrecision;
+import com.osmi.dev.duplicatefinder.model.MatchQuery;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Búsqueda de duplicados repartida en fragmentos que se puntúan por separado.
+ *
+ * Cada contacto va al fragmento que corresponde al hash de cada una de sus claves de bloqueo
+ * (email normalizado, código postal más apellido...), así que puede estar en varios. Dos
+ * contactos que comparten una clave siempre coinciden en el fragmento de esa clave, por lo que
+ * cada fragmento se puede puntuar sin ver los demás. Un par que comparte varias claves, o cuyas
+ * claves caen en el mismo fragmento por azar, aparece en más de un resultado con la misma
+ * puntuación; al mezclar se queda una sola vez.
+ *
+ * Los resultados de los fragmentos llegan ordenados por fila de origen y de coincidencia y se
+ * mezclan con un montículo, de modo que la lista final es la misma y en el mismo orden que la de
+ * {@link ContactService#findDuplicates(List)}. Los fragmentos se envían a la vez, cada uno en su
+ * hilo virtual, para que un worker remoto pueda esperar la respuesta sin ocupar un hilo.
+ *
+ * Se crea con {@link ContactService#newShardCoordinator(int, ShardWorker)}; para repartir los
+ * trabajos de subida con otro worker basta con publicar un bean {@link ShardWorker}.
+ */
+public final class ShardCoordinator {
+
+    private final ScoringRules rules;
+    private final DuplicateFinderMetrics metrics;
+    private final int[] blockingValues;
+    private final int shardCount;
+    private final ShardWorker worker;
+
+    ShardCoordinator(ScoringRules rules, DuplicateFinderMetrics metrics, int shardCount, ShardWorker worker) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("El número de fragmentos debe ser al menos 1");
+        }
+        this.rules = rules;
+        this.metrics = metrics;
+        this.blockingValues = rules.blockingValues();
+        this.shardCount = shardCount;
+        this.worker = worker;
+    }
+
+    /**
+     * Busca las coincidencias que cumplen la consulta. El límite, si lo hay, se aplica después de
+     * mezclar, ya que un par repetido en dos fragmentos solo debe contar una vez. Registra las
+     * mismas métricas que {@link ContactService#findDuplicates(List, MatchQuery, ProgressListener)}.
+     */
+    public List<DuplicateMatch> findDuplicates(List<Contact> contacts, MatchQuery query, ProgressListener listener)
+            throws InterruptedException, ExecutionException {
+        Timer.Sample sample = Timer.start();
+        try {
+            MatchStore matches = scoreAndMerge(contacts, query, metrics.tracking(listener));
+            metrics.matchesFound(matches.count(MatchPrecision.ALTA), matches.count(MatchPrecision.BAJA));
+            return matches;
+        } finally {
+            sample.stop(metrics.matchTimer(JobMode.PAIRS));
+        }
+    }
+
+    private MatchStore scoreAndMerge(List<Contact> contacts, MatchQuery query, ProgressListener listener)
+            throws InterruptedException, ExecutionException {
+        MatchQuery shardQuery = new MatchQuery(query.getMinScore(), query.getPrecision(), null);
+        List<ShardWorker.Result> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<ShardWorker.Result>> futures = new ArrayList<>();
+            for (ShardWorker.Shard shard : partition(contacts)) {
+                futures.add(executor.submit(() -> worker.score(shard, shardQuery)));
+            }
+            for (Future<ShardWorker.Result> future : futures) {
+                ShardWorker.Result result = future.get();
+                listener.pairsCompared(result.pairsCompared());
+                results.add(result);
+            }
+        }
+
+        String[] ids = new String[contacts.size()];
+        for (int row = 0; row < ids.length; row++) {
+            ids[row] = contacts.get(row).getId();
+        }
+        if (query.getLimit() == null) {
+            MatchStore matches = new MatchStore(ids);
+            merge(results, matches);
+            return matches;
+        }
+        TopMatchHeap top = new TopMatchHeap(query.getLimit());
+        merge(results, top);
+        return top.toStore(ids);
+    }
+
+    /**
+     * Reparte las filas entre los fragmentos según el hash de cada clave de bloqueo. Los
+     * fragmentos sin contactos no se envían.
+     */
+    List<ShardWorker.Shard> partition(List<Contact> contacts) {
+        IntList[] rows = new IntList[shardCount];
+        for (int shard = 0; shard < shardCount; shard++) {
+            rows[shard] = new IntList();
+        }
+        for (int row = 0; row < contacts.size(); row++) {
+            String[] values = rules.values(contacts.get(row));
+            for (int column = 0; column < blockingValues.length; column++) {
+                String key = values[blockingValues[column]];
+                if (key == null) {
+                    continue;
+                }
+                IntList target = rows[shardOf(column, key)];
+                // Dos claves del mismo contacto pueden caer en el mismo fragmento
+                if (target.size() == 0 || target.get(target.size() - 1) != row) {
+                    target.add(row);
+                }
+            }
+        }
+
+        List<ShardWorker.Shard> shards = new ArrayList<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            if (rows[shard].size() < 2) {
+                continue;
+            }
+            int[] shardRows = new int[rows[shard].size()];
+            List<Contact> shardContacts = new ArrayList<>(shardRows.length);
+            for (int i = 0; i < shardRows.length; i++) {
+                shardRows[i] = rows[shard].get(i);
+                shardContacts.add(contacts.get(shardRows[i]));
+            }
+            shards.add(new ShardWorker.Shard(shard, shardRows, shardContacts));
+        }
+        return shards;
+    }
+
+    /**
+     * La columna entra en el hash para que un mismo texto en dos claves distintas no vaya siempre
+     * al mismo fragmento.
+     */
+    private int shardOf(int column, String key) {
+        return Math.floorMod(31 * key.hashCode() + column, shardCount);
+    }
+
+    /**
+     * Mezcla en orden los resultados de los fragmentos, saltando los pares ya entregados.
+     */
+    private void merge(List<ShardWorker.Result> results, MatchCollector target) {
+        // Cada entrada es {resultado, posición}; el montículo saca la de menor (origen, coincidencia)
+        PriorityQueue<int[]> heads = new PriorityQueue<>((a, b) -> {
+            ShardWorker.Result left = results.get(a[0]);
+            ShardWorker.Result right = results.get(b[0]);
+            int byOrigen = Integer.compare(left.origen()[a[1]], right.origen()[b[1]]);
+            return byOrigen != 0 ? byOrigen : Integer.compare(left.coincidencia()[a[1]], right.coincidencia()[b[1]]);
+        });
+        for (int r = 0; r < results.size(); r++) {
+            if (results.get(r).size() > 0) {
+                heads.add(new int[]{r, 0});
+            }
+        }
+        int lastOrigen = -1;
+        int lastCoincidencia = -1;
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            ShardWorker.Result result = results.get(head[0]);
+            int origen = result.origen()[head[1]];
+            int coincidencia = result.coincidencia()[head[1]];
+            if (origen != lastOrigen || coincidencia != lastCoincidencia) {
+                int score = result.scores()[head[1]];
+                target.add(origen, coincidencia, score, rules.precision(score));
+                lastOrigen = origen;
+                lastCoincidencia = coincidencia;
+            }
+            if (++head[1] < result.size()) {
+                heads.add(head);
+            }
+        }
+    }
+}
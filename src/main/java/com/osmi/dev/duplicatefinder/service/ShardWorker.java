@@ -0,0 +1,47 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.model.Contact;
+import com.osmi.dev.duplicatefinder.model.MatchQuery;
+
+import java.util.List;
+
+/**
+ * Puntúa un fragmento de los contactos de forma independiente del resto.
+ *
+ * El coordinador reparte los contactos en fragmentos por clave de bloqueo y entrega cada uno a un
+ * worker. La implementación en proceso puntúa con {@link ContactService}; otra podría enviar el
+ * fragmento a otro proceso o a otra máquina, ya que solo viajan contactos y filas y se devuelven
+ * arreglos de enteros.
+ */
+public interface ShardWorker {
+
+    /**
+     * Busca los duplicados del fragmento que cumplen la consulta.
+     *
+     * @param query filtro de puntuación y precisión; el límite lo aplica el coordinador
+     */
+    Result score(Shard shard, MatchQuery query) throws Exception;
+
+    /**
+     * Fragmento de contactos.
+     *
+     * @param index número del fragmento
+     * @param rows fila de cada contacto en el archivo original, en orden ascendente
+     * @param contacts contactos del fragmento, en el mismo orden que {@code rows}
+     */
+    record Shard(int index, int[] rows, List<Contact> contacts) {
+    }
+
+    /**
+     * Coincidencias de un fragmento, con las filas del archivo original y en el mismo orden que
+     * {@link ContactService#findDuplicates(List)}.
+     *
+     * @param pairsCompared pares candidatos que se compararon en el fragmento
+     */
+    record Result(int index, int[] origen, int[] coincidencia, int[] scores, long pairsCompared) {
+
+        int size() {
+            return origen.length;
+        }
+    }
+}
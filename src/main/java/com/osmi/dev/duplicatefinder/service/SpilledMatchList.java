@@ -0,0 +1,261 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.model.DuplicateMatch;
+import com.osmi.dev.duplicatefinder.model.MatchPrecision;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lista de coincidencias guardada en un archivo temporal, para resultados que no deben ocupar
+ * heap por cada coincidencia.
+ *
+ * Cada coincidencia se escribe como precisión, puntuación y los dos ids. En memoria solo queda
+ * la posición de cada bloque de {@value #BLOCK_MATCHES} coincidencias, 8 bytes por bloque. Leer
+ * una posición lee su bloque entero con el {@link FileChannel}; los iteradores, también los de
+ * {@link #subList(int, int)}, recorren el archivo bloque a bloque, así que paginar o exportar no
+ * lee cada bloque más de una vez.
+ *
+ * Es de solo lectura y se puede leer desde varios hilos. Al cerrarla se borra el archivo.
+ */
+final class SpilledMatchList extends AbstractList<DuplicateMatch> implements AutoCloseable {
+
+    static final int BLOCK_MATCHES = 256;
+    private static final MatchPrecision[] PRECISIONS = MatchPrecision.values();
+
+    private final Path file;
+    private final FileChannel channel;
+    // Posición de inicio de cada bloque y, al final, el tamaño del archivo
+    private final long[] offsets;
+    private final int size;
+
+    private SpilledMatchList(Path file, long[] offsets, int size) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.offsets = offsets;
+        this.size = size;
+    }
+
+    @Override
+    public DuplicateMatch get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Índice " + index + " fuera de rango (tamaño " + size + ")");
+        }
+        return block(index / BLOCK_MATCHES)[index % BLOCK_MATCHES];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<DuplicateMatch> iterator() {
+        return listIterator(0);
+    }
+
+    @Override
+    public ListIterator<DuplicateMatch> listIterator(int index) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Índice " + index + " fuera de rango (tamaño " + size + ")");
+        }
+        return new BlockIterator(index);
+    }
+
+    /**
+     * Borra el archivo; la lista deja de poder leerse.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    private DuplicateMatch[] block(int block) {
+        long from = offsets[block];
+        ByteBuffer buffer = ByteBuffer.allocate((int) (offsets[block + 1] - from));
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, from + buffer.position()) < 0) {
+                    throw new EOFException("Archivo de coincidencias truncado: " + file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.flip();
+
+        DuplicateMatch[] matches = new DuplicateMatch[Math.min(BLOCK_MATCHES, size - block * BLOCK_MATCHES)];
+        for (int i = 0; i < matches.length; i++) {
+            MatchPrecision precision = PRECISIONS[buffer.get()];
+            int score = buffer.getInt();
+            matches[i] = new DuplicateMatch(readString(buffer), readString(buffer), precision.getLabel(), score);
+        }
+        return matches;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    /**
+     * Iterador que conserva el bloque actual decodificado.
+     */
+    private final class BlockIterator implements ListIterator<DuplicateMatch> {
+        private int cursor;
+        private int loadedBlock = -1;
+        private DuplicateMatch[] loaded;
+
+        BlockIterator(int cursor) {
+            this.cursor = cursor;
+        }
+
+        private DuplicateMatch at(int index) {
+            int block = index / BLOCK_MATCHES;
+            if (block != loadedBlock) {
+                loaded = block(block);
+                loadedBlock = block;
+            }
+            return loaded[index % BLOCK_MATCHES];
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < size;
+        }
+
+        @Override
+        public DuplicateMatch next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return at(cursor++);
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return cursor > 0;
+        }
+
+        @Override
+        public DuplicateMatch previous() {
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            return at(--cursor);
+        }
+
+        @Override
+        public int nextIndex() {
+            return cursor;
+        }
+
+        @Override
+        public int previousIndex() {
+            return cursor - 1;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void set(DuplicateMatch match) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void add(DuplicateMatch match) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Escribe las coincidencias en orden en un archivo temporal nuevo. Si se cierra sin llamar a
+     * {@link #finish()}, el archivo se borra.
+     */
+    static final class Writer implements Closeable {
+        private final Path file;
+        private final DataOutputStream out;
+        private long[] offsets = new long[16];
+        private long position;
+        private int size;
+        private boolean finished;
+
+        Writer() throws IOException {
+            this.file = Files.createTempFile("dedup-results-", ".bin");
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+        }
+
+        void add(String origenId, String coincidenciaId, int score, MatchPrecision precision) throws IOException {
+            if (size % BLOCK_MATCHES == 0) {
+                int block = size / BLOCK_MATCHES;
+                if (block + 1 >= offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                offsets[block] = position;
+            }
+            out.writeByte(precision.ordinal());
+            out.writeInt(score);
+            position += 5 + writeString(origenId) + writeString(coincidenciaId);
+            size++;
+        }
+
+        /**
+         * Cierra el archivo y devuelve la lista que lo lee.
+         */
+        SpilledMatchList finish() throws IOException {
+            out.close();
+            int blocks = (size + BLOCK_MATCHES - 1) / BLOCK_MATCHES;
+            long[] bounds = Arrays.copyOf(offsets, blocks + 1);
+            bounds[blocks] = position;
+            SpilledMatchList list = new SpilledMatchList(file, bounds, size);
+            finished = true;
+            return list;
+        }
+
+        /**
+         * Mismo formato que {@link ExternalSorter#writeString}, devolviendo los bytes escritos.
+         */
+        private int writeString(String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+                return 4;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            return 4 + bytes.length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                out.close();
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.model.MatchPrecision;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Montículo de mínimos acotado que conserva las {@code capacity} coincidencias con mayor
+ * puntuación. La raíz es la peor de las guardadas: cada par nuevo solo se compara con ella, de
+ * modo que la memoria no depende del número de pares y el coste por par es O(log capacity).
+ *
+ * Entre puntuaciones iguales gana el par que aparece antes en el archivo, por lo que el
+ * resultado no depende de cómo se repartan las filas entre hilos.
+ */
+final class TopMatchHeap implements MatchCollector {
+
+    private static final MatchPrecision[] PRECISIONS = MatchPrecision.values();
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int capacity;
+    // Los arreglos crecen hasta capacity a medida que llegan pares, por si el límite es muy alto
+    private int[] origen;
+    private int[] coincidencia;
+    private int[] scores;
+    private byte[] precisions;
+    private int size;
+
+    TopMatchHeap(int capacity) {
+        this.capacity = capacity;
+        int initial = Math.min(capacity, INITIAL_CAPACITY);
+        this.origen = new int[initial];
+        this.coincidencia = new int[initial];
+        this.scores = new int[initial];
+        this.precisions = new byte[initial];
+    }
+
+    @Override
+    public void add(int origenRow, int coincidenciaRow, int score, MatchPrecision precision) {
+        if (size < capacity) {
+            if (size == origen.length) {
+                grow();
+            }
+            set(size, origenRow, coincidenciaRow, score, (byte) precision.ordinal());
+            siftUp(size++);
+        } else if (capacity > 0 && worse(0, score, origenRow, coincidenciaRow)) {
+            set(0, origenRow, coincidenciaRow, score, (byte) precision.ordinal());
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Añade las coincidencias de otro montículo, por ejemplo el de otro tramo de filas.
+     */
+    void addAll(TopMatchHeap other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.origen[i], other.coincidencia[i], other.scores[i], PRECISIONS[other.precisions[i]]);
+        }
+    }
+
+    /**
+     * Devuelve las coincidencias guardadas de mayor a menor puntuación y, a igual puntuación,
+     * en el orden del archivo.
+     */
+    MatchStore toStore(String[] ids) {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingInt(i -> -scores[i])
+                .thenComparingInt(i -> origen[i])
+                .thenComparingInt(i -> coincidencia[i]));
+        MatchStore store = new MatchStore(ids);
+        for (int i : order) {
+            store.add(origen[i], coincidencia[i], scores[i], PRECISIONS[precisions[i]]);
+        }
+        return store;
+    }
+
+    private void grow() {
+        int newCapacity = (int) Math.min(capacity, origen.length * 2L);
+        origen = Arrays.copyOf(origen, newCapacity);
+        coincidencia = Arrays.copyOf(coincidencia, newCapacity);
+        scores = Arrays.copyOf(scores, newCapacity);
+        precisions = Arrays.copyOf(precisions, newCapacity);
+    }
+
+    private void set(int slot, int a, int b, int score, byte precision) {
+        origen[slot] = a;
+        coincidencia[slot] = b;
+        scores[slot] = score;
+        precisions[slot] = precision;
+    }
+
+    /**
+     * Si la entrada guardada en {@code slot} es peor que el par (score, a, b).
+     */
+    private boolean worse(int slot, int score, int a, int b) {
+        if (scores[slot] != score) {
+            return scores[slot] < score;
+        }
+        if (origen[slot] != a) {
+            return origen[slot] > a;
+        }
+        return coincidencia[slot] > b;
+    }
+
+    private void siftUp(int slot) {
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (!worse(slot, scores[parent], origen[parent], coincidencia[parent])) {
+                return;
+            }
+            swap(slot, parent);
+            slot = parent;
+        }
+    }
+
+    private void siftDown(int slot) {
+        while (true) {
+            int left = 2 * slot + 1;
+            if (left >= size) {
+                return;
+            }
+            int right = left + 1;
+            int worst = right < size && worse(right, scores[left], origen[left], coincidencia[left]) ? right : left;
+            if (!worse(worst, scores[slot], origen[slot], coincidencia[slot])) {
+                return;
+            }
+            swap(slot, worst);
+            slot = worst;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int a = origen[i];
+        int b = coincidencia[i];
+        int score = scores[i];
+        byte precision = precisions[i];
+        set(i, origen[j], coincidencia[j], scores[j], precisions[j]);
+        set(j, a, b, score, precision);
+    }
+}
@@ -0,0 +1,89 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.config.DuplicateFinderProperties;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Control de admisión de subidas por memoria estimada.
+ *
+ * El presupuesto es un semáforo justo con un permiso por KiB. Cada trabajo pide los permisos que
+ * corresponden al tamaño de su archivo por el factor de coste y los devuelve al terminar, así que
+ * varias subidas grandes a la vez esperan su turno en lugar de agotar el heap entre todas. Un
+ * archivo que por sí solo supera el presupuesto reserva el presupuesto completo y se procesa solo.
+ */
+final class UploadAdmission {
+
+    private static final long BYTES_PER_PERMIT = 1024;
+
+    private final boolean enabled;
+    private final Semaphore permits;
+    private final int totalPermits;
+    private final double costFactor;
+    private final Duration queueTimeout;
+    private final DuplicateFinderMetrics metrics;
+
+    UploadAdmission(DuplicateFinderProperties.Admission config, DuplicateFinderMetrics metrics) {
+        this.enabled = config.isEnabled();
+        this.totalPermits = (int) Math.max(1, Math.min(config.effectiveMemoryBudget() / BYTES_PER_PERMIT, Integer.MAX_VALUE));
+        this.permits = new Semaphore(totalPermits, true);
+        this.costFactor = config.getCostFactor();
+        this.queueTimeout = config.getQueueTimeout();
+        this.metrics = metrics;
+    }
+
+    /**
+     * Reserva la memoria estimada para un archivo de {@code fileSize} bytes, esperando como mucho
+     * el tiempo de cola configurado.
+     *
+     * @throws UploadThrottledException si no se libera presupuesto suficiente a tiempo
+     */
+    Permit acquire(long fileSize) {
+        if (!enabled) {
+            return new Permit(0);
+        }
+        int cost = cost(fileSize);
+        try {
+            if (!permits.tryAcquire(cost, queueTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new UploadThrottledException("No hay memoria libre para procesar el archivo");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UploadThrottledException("Espera de admisión interrumpida");
+        }
+        metrics.memoryReserved(cost * BYTES_PER_PERMIT);
+        return new Permit(cost);
+    }
+
+    int cost(long fileSize) {
+        double bytes = Math.max(fileSize, 0) * costFactor;
+        return (int) Math.max(1, Math.min(Math.ceil(bytes / BYTES_PER_PERMIT), totalPermits));
+    }
+
+    /** Permisos libres del presupuesto, en KiB. */
+    int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * Memoria reservada por un trabajo. Se libera una sola vez aunque se llame varias veces.
+     */
+    final class Permit {
+        private final int cost;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int cost) {
+            this.cost = cost;
+        }
+
+        void release() {
+            if (cost > 0 && released.compareAndSet(false, true)) {
+                permits.release(cost);
+                metrics.memoryReserved(-cost * BYTES_PER_PERMIT);
+            }
+        }
+    }
+}
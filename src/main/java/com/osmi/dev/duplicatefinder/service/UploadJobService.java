@@ -0,0 +1,404 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.config.DuplicateFinderProperties;
+import com.osmi.dev.duplicatefinder.model.Contact;
+import com.osmi.dev.duplicatefinder.model.ContactFileFormat;
+import com.osmi.dev.duplicatefinder.model.DuplicateGroup;
+import com.osmi.dev.duplicatefinder.model.DuplicateMatch;
+import com.osmi.dev.duplicatefinder.model.JobMode;
+import com.osmi.dev.duplicatefinder.model.MatchQuery;
+import com.osmi.dev.duplicatefinder.model.UploadJob;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ejecuta el procesamiento de archivos fuera del hilo de la petición.
+ *
+ * Cada subida se guarda en un archivo temporal y se encola en un pool acotado; el cliente
+ * recibe el id del trabajo al instante y consulta su estado hasta que los resultados estén listos.
+ * Mientras se guarda el archivo se calcula su SHA-256: si ya se procesó con la misma configuración,
+ * el trabajo se completa al momento con el resultado en caché. Si no, antes de encolarlo se reserva
+ * la memoria que se estima que necesitará, esperando un tiempo acotado si otras subidas la ocupan.
+ * Los contactos leídos se guardan en un snapshot binario, de modo que repetir el procesamiento del
+ * mismo contenido con otra consulta o configuración de puntuación no vuelve a leer el archivo.
+ */
+@Service
+public class UploadJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadJobService.class);
+
+    private final ContactService contactService;
+    private final ResultCache resultCache;
+    private final DuplicateFinderMetrics metrics;
+    private final ThreadPoolExecutor executor;
+    private final UploadAdmission admission;
+    private final ContactSnapshotStore snapshots;
+    private final int retainedJobs;
+    private final boolean pipelined;
+    private final boolean outOfCore;
+    private final ShardCoordinator shardCoordinator;
+    private final Map<String, UploadJob> jobs = new ConcurrentHashMap<>();
+
+    public UploadJobService(ContactService contactService, ResultCache resultCache, DuplicateFinderMetrics metrics,
+                            DuplicateFinderProperties properties) {
+        this(contactService, resultCache, metrics, properties, (ShardWorker) null);
+    }
+
+    /**
+     * Con {@code duplicatefinder.matching.shards} mayor que 1, los fragmentos se puntúan con el
+     * bean {@link ShardWorker} que haya publicado la aplicación o, si no hay ninguno, en este
+     * mismo proceso.
+     */
+    @Autowired
+    public UploadJobService(ContactService contactService, ResultCache resultCache, DuplicateFinderMetrics metrics,
+                            DuplicateFinderProperties properties, ObjectProvider<ShardWorker> shardWorker) {
+        this(contactService, resultCache, metrics, properties, shardWorker.getIfAvailable());
+    }
+
+    UploadJobService(ContactService contactService, ResultCache resultCache, DuplicateFinderMetrics metrics,
+                     DuplicateFinderProperties properties, ShardWorker shardWorker) {
+        this.contactService = contactService;
+        this.resultCache = resultCache;
+        this.metrics = metrics;
+        DuplicateFinderProperties.Jobs config = properties.getJobs();
+        this.retainedJobs = config.getRetainedJobs();
+        this.pipelined = properties.getMatching().isPipelined();
+        this.outOfCore = properties.getMatching().isOutOfCore();
+        int shards = properties.getMatching().getShards();
+        if (shards <= 1) {
+            this.shardCoordinator = null;
+        } else {
+            this.shardCoordinator = shardWorker != null
+                    ? contactService.newShardCoordinator(shards, shardWorker)
+                    : contactService.newShardCoordinator(shards);
+        }
+        this.admission = new UploadAdmission(properties.getAdmission(), metrics);
+        this.snapshots = new ContactSnapshotStore(properties.getSnapshots(), contactService.readerFingerprint());
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threads = config.isVirtualThreads()
+                ? Thread.ofVirtual().name("upload-job-", 1).factory()
+                : runnable -> new Thread(runnable, "upload-job-" + threadCount.incrementAndGet());
+        this.executor = new ThreadPoolExecutor(
+                config.getMaxConcurrent(), config.getMaxConcurrent(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.getQueueCapacity()),
+                threads);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+        jobs.values().forEach(UploadJobService::releaseResults);
+    }
+
+    /**
+     * Guarda el archivo y encola su procesamiento.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException si la cola de trabajos está llena
+     * @throws UploadThrottledException si no se libera memoria para el archivo a tiempo
+     */
+    public UploadJob submit(MultipartFile file) throws IOException {
+        return submit(file, JobMode.PAIRS);
+    }
+
+    /**
+     * Igual que {@link #submit(MultipartFile)}, eligiendo si el resultado son pares o grupos.
+     */
+    public UploadJob submit(MultipartFile file, JobMode mode) throws IOException {
+        return submit(file, mode, ContactFileFormat.XLSX);
+    }
+
+    /**
+     * Igual que {@link #submit(MultipartFile, JobMode)} para un archivo del formato indicado.
+     */
+    public UploadJob submit(MultipartFile file, JobMode mode, ContactFileFormat format) throws IOException {
+        return submit(file, mode, format, new MatchQuery());
+    }
+
+    /**
+     * Igual que {@link #submit(MultipartFile, JobMode, ContactFileFormat)}, devolviendo solo las
+     * coincidencias que cumplen la consulta. La consulta solo se aplica en modo pares.
+     */
+    public UploadJob submit(MultipartFile file, JobMode mode, ContactFileFormat format, MatchQuery query) throws IOException {
+        Path tempFile = Files.createTempFile("upload-", "." + format.name().toLowerCase(Locale.ROOT));
+        try {
+            String sourceKey = transfer(file, tempFile) + '-' + format.name().toLowerCase(Locale.ROOT);
+            UploadJob job = new UploadJob(UUID.randomUUID().toString(), file.getOriginalFilename(), mode);
+            job.setSourceKey(sourceKey);
+            if (!completeFromCache(job, query)) {
+                enqueue(job, tempFile, format, query, file.getSize());
+            } else {
+                Files.deleteIfExists(tempFile);
+            }
+            return job;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
+
+    /**
+     * Vuelve a procesar el contenido de un trabajo anterior desde su snapshot, sin subir ni leer
+     * el archivo otra vez, con otro modo o con otra consulta.
+     *
+     * @throws IllegalStateException si el snapshot del trabajo ya no está disponible
+     * @throws java.util.concurrent.RejectedExecutionException si la cola de trabajos está llena
+     * @throws UploadThrottledException si no se libera memoria a tiempo
+     */
+    public UploadJob rerun(UploadJob source, JobMode mode, MatchQuery query) throws IOException {
+        String sourceKey = source.getSourceKey();
+        OptionalLong size = sourceKey == null ? OptionalLong.empty() : snapshots.size(sourceKey);
+        if (size.isEmpty()) {
+            throw new IllegalStateException("El archivo del trabajo " + source.getId() + " ya no está disponible");
+        }
+        UploadJob job = new UploadJob(UUID.randomUUID().toString(), source.getFileName(), mode);
+        job.setSourceKey(sourceKey);
+        if (!completeFromCache(job, query)) {
+            enqueue(job, null, null, query, size.getAsLong());
+        }
+        return job;
+    }
+
+    private String cacheKey(UploadJob job, MatchQuery query) {
+        return job.getSourceKey() + '|' + job.getMode() + '|' + contactService.scoringFingerprint()
+                + (job.getMode() == JobMode.PAIRS ? "|" + query : "");
+    }
+
+    private boolean completeFromCache(UploadJob job, MatchQuery query) {
+        Optional<ResultCache.CachedResult> cached = resultCache.get(cacheKey(job, query));
+        if (cached.isEmpty()) {
+            return false;
+        }
+        completeFromCache(job, cached.get());
+        register(job);
+        return true;
+    }
+
+    /**
+     * Reserva memoria para el trabajo y lo encola; {@code file} es null si se procesa desde su snapshot.
+     */
+    private void enqueue(UploadJob job, Path file, ContactFileFormat format, MatchQuery query, long size) {
+        String cacheKey = cacheKey(job, query);
+        UploadAdmission.Permit permit = admit(size);
+        metrics.uploadStarted();
+        try {
+            executor.execute(() -> run(job, file, format, query, cacheKey, permit));
+        } catch (RuntimeException e) {
+            permit.release();
+            metrics.uploadFinished();
+            if (e instanceof RejectedExecutionException) {
+                metrics.uploadRejected(false);
+            }
+            throw e;
+        }
+        register(job);
+    }
+
+    /**
+     * Reserva en el presupuesto compartido de subidas la memoria estimada para un archivo de
+     * {@code size} bytes.
+     *
+     * @throws UploadThrottledException si no se libera presupuesto suficiente a tiempo
+     */
+    UploadAdmission.Permit admit(long size) {
+        try {
+            return admission.acquire(size);
+        } catch (UploadThrottledException e) {
+            metrics.uploadRejected(true);
+            throw e;
+        }
+    }
+
+    private void register(UploadJob job) {
+        jobs.put(job.getId(), job);
+        evictFinishedJobs();
+    }
+
+    public Optional<UploadJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * Copia el archivo subido a disco calculando a la vez su SHA-256.
+     *
+     * @return el hash en hexadecimal
+     */
+    private static String transfer(MultipartFile file, Path target) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private static void completeFromCache(UploadJob job, ResultCache.CachedResult result) {
+        job.markCached();
+        job.addRowsParsed(result.rowsParsed());
+        job.addPairsCompared(result.pairsCompared());
+        if (job.getMode() == JobMode.GROUPS) {
+            job.completeWithGroups(result.groups());
+        } else {
+            job.complete(result.matches());
+        }
+    }
+
+    private void run(UploadJob job, Path file, ContactFileFormat format, MatchQuery query, String cacheKey,
+                     UploadAdmission.Permit permit) {
+        job.markRunning();
+        ProgressListener listener = new ProgressListener() {
+            @Override
+            public void rowParsed() {
+                job.addRowsParsed(1);
+            }
+
+            @Override
+            public void pairsCompared(long pairs) {
+                job.addPairsCompared(pairs);
+            }
+        };
+        try {
+            boolean streaming = file != null && job.getMode() == JobMode.PAIRS && query.isUnfiltered();
+            if (streaming && outOfCore) {
+                // Las coincidencias quedan en un archivo temporal; no pasan por la caché, que está en el heap
+                job.complete(contactService.findDuplicatesOutOfCore(file, format, listener));
+                return;
+            }
+            if (streaming && pipelined) {
+                List<DuplicateMatch> matches = contactService.findDuplicatesPipelined(file, format, listener);
+                resultCache.put(cacheKey, new ResultCache.CachedResult(matches, null, job.getRowsParsed(), job.getPairsCompared()));
+                job.complete(matches);
+                return;
+            }
+            List<Contact> contacts = loadContacts(job, file, format, listener);
+            if (job.getMode() == JobMode.GROUPS) {
+                List<DuplicateGroup> groups = contactService.findDuplicateGroups(contacts, listener);
+                resultCache.put(cacheKey, new ResultCache.CachedResult(null, groups, job.getRowsParsed(), job.getPairsCompared()));
+                job.completeWithGroups(groups);
+            } else {
+                List<DuplicateMatch> matches = shardCoordinator != null
+                        ? shardCoordinator.findDuplicates(contacts, query, listener)
+                        : contactService.findDuplicates(contacts, query, listener);
+                resultCache.put(cacheKey, new ResultCache.CachedResult(matches, null, job.getRowsParsed(), job.getPairsCompared()));
+                job.complete(matches);
+            }
+        } catch (Exception e) {
+            logger.error("Error al procesar el trabajo {}.", job.getId(), e);
+            job.fail("Error al procesar el archivo. Asegúrate de que el formato sea correcto.");
+        } finally {
+            permit.release();
+            metrics.uploadFinished();
+            try {
+                if (file != null) {
+                    Files.deleteIfExists(file);
+                }
+            } catch (IOException e) {
+                logger.warn("No se pudo borrar el archivo temporal {}.", file, e);
+            }
+        }
+    }
+
+    /**
+     * Obtiene los contactos del snapshot del contenido si existe y, si no, lee el archivo y guarda
+     * el snapshot para la próxima vez.
+     */
+    private List<Contact> loadContacts(UploadJob job, Path file, ContactFileFormat format,
+                                       ProgressListener listener) throws Exception {
+        try {
+            Optional<List<Contact>> snapshot = snapshots.read(job.getSourceKey());
+            if (snapshot.isPresent()) {
+                job.addRowsParsed(snapshot.get().size());
+                return snapshot.get();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("No se pudo leer el snapshot {}; se lee el archivo.", job.getSourceKey(), e);
+        }
+        if (file == null) {
+            throw new IllegalStateException("El snapshot " + job.getSourceKey() + " ya no está disponible");
+        }
+
+        List<Contact> contacts = new ArrayList<>();
+        contactService.parseContacts(file, format, contact -> {
+            contacts.add(contact);
+            listener.rowParsed();
+        });
+        try {
+            snapshots.write(job.getSourceKey(), contacts);
+        } catch (IOException e) {
+            logger.warn("No se pudo guardar el snapshot {}.", job.getSourceKey(), e);
+        }
+        return contacts;
+    }
+
+    /**
+     * Descarta los trabajos terminados más antiguos cuando se supera el máximo a conservar.
+     */
+    private synchronized void evictFinishedJobs() {
+        int excess = jobs.size() - retainedJobs;
+        if (excess <= 0) {
+            return;
+        }
+        List<UploadJob> finished = new ArrayList<>();
+        for (UploadJob job : jobs.values()) {
+            if (job.getStatus().isFinished()) {
+                finished.add(job);
+            }
+        }
+        finished.sort(Comparator.comparing(UploadJob::getCreatedAt));
+        Iterator<UploadJob> oldest = finished.iterator();
+        while (excess-- > 0 && oldest.hasNext()) {
+            releaseResults(jobs.remove(oldest.next().getId()));
+        }
+    }
+
+    /**
+     * Borra el archivo temporal de las coincidencias del modo fuera de memoria, si lo tiene.
+     */
+    private static void releaseResults(UploadJob job) {
+        if (job != null && job.getResults() instanceof AutoCloseable spilled) {
+            try {
+                spilled.close();
+            } catch (Exception e) {
+                logger.warn("No se pudieron borrar los resultados del trabajo {}.", job.getId(), e);
+            }
+        }
+    }
+}
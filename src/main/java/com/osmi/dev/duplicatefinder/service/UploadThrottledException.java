@@ -0,0 +1,14 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * La subida se rechaza porque no quedó presupuesto de memoria libre en el tiempo de espera.
+ * A diferencia de la cola de trabajos llena, reintentar al poco suele funcionar.
+ */
+public class UploadThrottledException extends RejectedExecutionException {
+
+    public UploadThrottledException(String message) {
+        super(message);
+    }
+}
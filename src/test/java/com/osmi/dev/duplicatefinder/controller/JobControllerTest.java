@@ -0,0 +1,142 @@
+package com.osmi.dev.duplicatefinder.controller;
+
+import com.osmi.dev.duplicatefinder.model.ContactFileFormat;
+import com.osmi.dev.duplicatefinder.model.DuplicateMatch;
+import com.osmi.dev.duplicatefinder.model.JobMode;
+import com.osmi.dev.duplicatefinder.model.MatchPrecision;
+import com.osmi.dev.duplicatefinder.model.MatchQuery;
+import com.osmi.dev.duplicatefinder.model.UploadJob;
+import com.osmi.dev.duplicatefinder.service.MatchExporter;
+import com.osmi.dev.duplicatefinder.service.UploadJobService;
+import com.osmi.dev.duplicatefinder.service.UploadThrottledException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Pruebas de la API de trabajos asíncronos.
+ */
+@WebMvcTest(JobController.class)
+@Import(MatchExporter.class)
+class JobControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private UploadJobService jobService;
+
+    private final MockMultipartFile file = new MockMultipartFile(
+            "file", "contacts.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+            "Contenido Falso del Excel".getBytes());
+
+    @Test
+    @DisplayName("POST /api/jobs debe responder 202 con el id del trabajo")
+    void submit_shouldReturnAcceptedWithJobId() throws Exception {
+        when(jobService.submit(any(), any(), any(), any())).thenReturn(new UploadJob("job-1", "contacts.xlsx"));
+
+        mockMvc.perform(multipart("/api/jobs").file(file))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value("job-1"))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+    }
+
+    @Test
+    @DisplayName("POST /api/jobs debe responder 503 si la cola está llena")
+    void submit_shouldReturnServiceUnavailableWhenQueueIsFull() throws Exception {
+        when(jobService.submit(any(), any(), any(), any())).thenThrow(new RejectedExecutionException());
+
+        mockMvc.perform(multipart("/api/jobs").file(file))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    @DisplayName("POST /api/jobs debe responder 429 si no queda memoria libre tras esperar en cola")
+    void submit_shouldReturnTooManyRequestsWhenThrottled() throws Exception {
+        when(jobService.submit(any(), any(), any(), any())).thenThrow(new UploadThrottledException("ocupado"));
+
+        mockMvc.perform(multipart("/api/jobs").file(file))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    @DisplayName("POST /api/jobs debe pasar la consulta al servicio y rechazar límites no positivos")
+    void submit_shouldForwardQueryAndValidateLimit() throws Exception {
+        when(jobService.submit(any(), any(), any(), any())).thenReturn(new UploadJob("job-1", "contacts.xlsx"));
+
+        mockMvc.perform(multipart("/api/jobs").file(file).param("precision", "ALTA").param("limit", "10"))
+                .andExpect(status().isAccepted());
+        verify(jobService).submit(any(), eq(JobMode.PAIRS), eq(ContactFileFormat.XLSX),
+                eq(new MatchQuery(0, MatchPrecision.ALTA, 10)));
+
+        mockMvc.perform(multipart("/api/jobs").file(file).param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Los resultados solo se entregan cuando el trabajo ha terminado")
+    void results_shouldRequireCompletedJob() throws Exception {
+        UploadJob running = new UploadJob("job-1", "contacts.xlsx");
+        running.markRunning();
+        UploadJob done = new UploadJob("job-2", "contacts.xlsx");
+        done.complete(List.of(new DuplicateMatch("1001", "1002", "Alta", 90)));
+        when(jobService.find("job-1")).thenReturn(Optional.of(running));
+        when(jobService.find("job-2")).thenReturn(Optional.of(done));
+
+        mockMvc.perform(get("/api/jobs/job-1/results")).andExpect(status().isConflict());
+        mockMvc.perform(get("/api/jobs/job-2/results"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].contactIdOrigen").value("1001"));
+        mockMvc.perform(get("/api/jobs/otro")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Las descargas NDJSON y CSV deben escribir una coincidencia por línea")
+    void resultsExport_shouldStreamOneMatchPerLine() throws Exception {
+        UploadJob done = new UploadJob("job-2", "contacts.xlsx");
+        done.complete(List.of(new DuplicateMatch("1001", "1002", "Alta", 90),
+                new DuplicateMatch("10,03", "1004", "Baja", 50)));
+        when(jobService.find("job-2")).thenReturn(Optional.of(done));
+
+        MvcResult ndjson = mockMvc.perform(get("/api/jobs/job-2/results.ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("""
+                        {"contactIdOrigen":"1001","contactIdCoincidencia":"1002","precision":"Alta","score":90}
+                        {"contactIdOrigen":"10,03","contactIdCoincidencia":"1004","precision":"Baja","score":50}
+                        """));
+
+        MvcResult csv = mockMvc.perform(get("/api/jobs/job-2/results.csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(csv))
+                .andExpect(status().isOk())
+                .andExpect(content().string("""
+                        ContactID Origen,ContactID Coincidencia,Precisión,Puntuación
+                        1001,1002,Alta,90
+                        "10,03",1004,Baja,50
+                        """));
+    }
+}
@@ -1,21 +1,27 @@
 package com.osmi.dev.duplicatefinder.controller;
 
-import com.osmi.dev.duplicatefinder.model.Contact;
+import com.osmi.dev.duplicatefinder.config.DuplicateFinderProperties;
+import com.osmi.dev.duplicatefinder.model.ContactFileFormat;
 import com.osmi.dev.duplicatefinder.model.DuplicateMatch;
-import com.osmi.dev.duplicatefinder.service.ContactService;
+import com.osmi.dev.duplicatefinder.model.JobMode;
+import com.osmi.dev.duplicatefinder.model.UploadJob;
+import com.osmi.dev.duplicatefinder.service.UploadJobService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
@@ -26,6 +32,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * @WebMvcTest carga solo la capa web (el controlador) para hacer pruebas rápidas y enfocadas.
  */
 @WebMvcTest(UploadController.class)
+@EnableConfigurationProperties(DuplicateFinderProperties.class)
 class UploadControllerTest {
 
     /**
@@ -36,12 +43,12 @@ class UploadControllerTest {
     private MockMvc mockMvc;
 
     /**
-     * @MockBean crea un "doble de prueba" o un mock del ContactService.
+     * @MockBean crea un "doble de prueba" o un mock del UploadJobService.
      * Esto nos permite aislar el controlador y decirle al servicio falso
      * cómo debe comportarse durante las pruebas.
      */
     @MockBean
-    private ContactService contactService;
+    private UploadJobService jobService;
 
     @Test
     @DisplayName("showUploadForm debe devolver la vista 'upload' con estado OK")
@@ -53,7 +60,7 @@ class UploadControllerTest {
     }
 
     @Test
-    @DisplayName("handleFileUpload debe procesar un archivo válido y redirigir con resultados")
+    @DisplayName("handleFileUpload debe encolar un archivo válido y redirigir a sus resultados")
     void handleFileUpload_shouldProcessValidFileAndRedirect() throws Exception {
         // Arrange: Preparamos un archivo falso y definimos el comportamiento de nuestro servicio mock
         MockMultipartFile file = new MockMultipartFile(
@@ -61,18 +68,50 @@ class UploadControllerTest {
                 "Contenido Falso del Excel".getBytes()
         );
 
-        List<DuplicateMatch> fakeDuplicates = List.of(new DuplicateMatch("1001", "1002", "Alta", 90));
-
-        // Le decimos al mock que devuelva una lista vacía cuando se parsea el excel (para evitar NullPointerException)
-        when(contactService.parseContactsFromExcel(any(InputStream.class))).thenReturn(new ArrayList<Contact>());
-        // Le decimos al mock que devuelva nuestra lista de duplicados falsos cuando se le pida
-        when(contactService.findDuplicates(any())).thenReturn(fakeDuplicates);
+        // Le decimos al mock que devuelva un trabajo recién encolado
+        when(jobService.submit(any(), any(), any())).thenReturn(new UploadJob("job-1", "contacts.xlsx"));
 
         // Act & Assert
         mockMvc.perform(multipart("/upload").file(file)) // Simula una subida de archivo a /upload
                 .andExpect(status().is3xxRedirection()) // Esperamos una redirección (HTTP 302)
-                .andExpect(redirectedUrl("/")) // Esperamos que la redirección sea a la página principal
-                .andExpect(flash().attributeExists("duplicates")); // Verificamos que los resultados se pasaron a la vista
+                .andExpect(redirectedUrl("/resultados/job-1")) // Esperamos que la redirección sea a la página del trabajo
+                .andExpect(flash().attributeCount(0)); // Los resultados ya no viajan en la sesión
+    }
+
+    @Test
+    @DisplayName("handleFileUpload debe usar el lector CSV para archivos .csv")
+    void handleFileUpload_shouldPickCsvReaderByExtension() throws Exception {
+        // Arrange: algunos navegadores envían los .csv con el tipo de Excel antiguo
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "contacts.csv", "application/vnd.ms-excel", "id,nombre\n".getBytes());
+        when(jobService.submit(any(), any(), any())).thenReturn(new UploadJob("job-2", "contacts.csv"));
+
+        // Act
+        mockMvc.perform(multipart("/upload").file(file))
+                .andExpect(redirectedUrl("/resultados/job-2"));
+
+        // Assert
+        verify(jobService).submit(any(), eq(JobMode.PAIRS), eq(ContactFileFormat.CSV));
+    }
+
+    @Test
+    @DisplayName("showResults debe mostrar solo la página solicitada de las coincidencias")
+    void showResults_shouldRenderRequestedPage() throws Exception {
+        // Arrange: un trabajo terminado con 5 coincidencias
+        List<DuplicateMatch> matches = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            matches.add(new DuplicateMatch("A" + i, "B" + i, "Baja", 50));
+        }
+        UploadJob job = new UploadJob("job-1", "contacts.xlsx");
+        job.complete(matches);
+        when(jobService.find("job-1")).thenReturn(Optional.of(job));
+
+        // Act & Assert: página 1 con tamaño 2 => coincidencias 2 y 3
+        mockMvc.perform(get("/resultados/job-1").param("page", "1").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("upload"))
+                .andExpect(model().attribute("duplicates", matches.subList(2, 4)))
+                .andExpect(model().attribute("successMessage", "Archivo procesado. Se encontraron 5 coincidencias."));
     }
 
     @Test
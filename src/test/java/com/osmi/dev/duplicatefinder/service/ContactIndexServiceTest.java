@@ -0,0 +1,143 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.config.DuplicateFinderProperties;
+import com.osmi.dev.duplicatefinder.model.Contact;
+import com.osmi.dev.duplicatefinder.model.ContactFileFormat;
+import com.osmi.dev.duplicatefinder.model.DuplicateMatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del índice incremental de contactos.
+ */
+class ContactIndexServiceTest {
+
+    private ContactService contactService;
+    private UploadJobService jobService;
+    private ContactIndexService indexService;
+
+    @BeforeEach
+    void setUp() {
+        DuplicateFinderProperties properties = new DuplicateFinderProperties();
+        properties.getAdmission().setMemoryBudget(DataSize.ofMegabytes(1));
+        properties.getAdmission().setQueueTimeout(Duration.ZERO);
+        contactService = new ContactService(properties);
+        jobService = new UploadJobService(contactService, new ResultCache(properties),
+                DuplicateFinderMetrics.noop(), properties);
+        indexService = new ContactIndexService(contactService, jobService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobService.shutdown();
+    }
+
+    @Test
+    @DisplayName("La suma de las coincidencias por lotes debe ser igual al cálculo completo")
+    void addBatch_shouldMatchFullRecomputeAcrossBatches() {
+        // Arrange: una lista maestra y dos archivos de cambios
+        List<Contact> contacts = ContactServiceTest.randomContacts(1_500, 5L, 40);
+
+        // Act
+        List<DuplicateMatch> incremental = new ArrayList<>();
+        incremental.addAll(indexService.addBatch(contacts.subList(0, 1_000)));
+        incremental.addAll(indexService.addBatch(contacts.subList(1_000, 1_200)));
+        incremental.addAll(indexService.addBatch(contacts.subList(1_200, 1_500)));
+
+        // Assert: mismos pares, sin repetir, con el contacto anterior como origen
+        List<DuplicateMatch> expected = contactService.findDuplicates(contacts);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected.size(), incremental.size());
+        assertEquals(new HashSet<>(expected), new HashSet<>(incremental));
+        assertEquals(1_500, indexService.size());
+    }
+
+    @Test
+    @DisplayName("Un lote nuevo solo debe devolver las coincidencias que genera")
+    void addBatch_shouldReturnOnlyNewMatches() {
+        // Arrange
+        Contact c1 = contact("1", "ana@test.com");
+        Contact c2 = contact("2", "ana@test.com");
+        Contact c3 = contact("3", "ANA@test.com ");
+        indexService.addBatch(List.of(c1, c2));
+
+        // Act
+        List<DuplicateMatch> matches = indexService.addBatch(List.of(c3));
+
+        // Assert: el par (1, 2) ya se devolvió con el primer lote
+        assertEquals(List.of(
+                new DuplicateMatch("1", "3", "Alta", 90),
+                new DuplicateMatch("2", "3", "Alta", 90)), matches);
+    }
+
+    @Test
+    @DisplayName("Un contacto que se vuelve a enviar con el mismo id debe sustituir al anterior, no coincidir con él")
+    void addBatch_shouldReplaceContactWithKnownId() {
+        // Arrange: la lista maestra con dos contactos que no coinciden
+        indexService.addBatch(List.of(contact("1", "ana@test.com"), contact("2", "luis@test.com")));
+
+        // Act: el archivo de cambios trae el contacto 1 con el email del 2, y después otro nuevo
+        // con el email antiguo del 1
+        List<DuplicateMatch> updated = indexService.addBatch(List.of(contact("1", "luis@test.com")));
+        List<DuplicateMatch> added = indexService.addBatch(List.of(contact("3", "ana@test.com")));
+
+        // Assert: sin pares consigo mismo y sin coincidencias con datos ya sustituidos
+        assertEquals(List.of(new DuplicateMatch("2", "1", "Alta", 90)), updated);
+        assertTrue(added.isEmpty());
+        assertEquals(3, indexService.size());
+    }
+
+    @Test
+    @DisplayName("Tras vaciar el índice, los contactos anteriores ya no deben coincidir")
+    void clear_shouldForgetPreviousContacts() {
+        // Arrange
+        indexService.addBatch(List.of(contact("1", "ana@test.com")));
+
+        // Act
+        indexService.clear();
+        List<DuplicateMatch> matches = indexService.addBatch(List.of(contact("2", "ana@test.com")));
+
+        // Assert
+        assertTrue(matches.isEmpty());
+        assertEquals(1, indexService.size());
+    }
+
+    @Test
+    @DisplayName("Un archivo sin memoria libre debe rechazarse sin tocar el índice")
+    void addBatch_shouldRejectFileWhenBudgetIsExhausted() throws Exception {
+        // Arrange: otra subida ya ocupa todo el presupuesto
+        byte[] csv = "ID,Nombre,Apellido,Email,Código Postal,Dirección\n1,Ana,Lopez,ana@test.com,28080,Calle 1\n"
+                .getBytes(StandardCharsets.UTF_8);
+        UploadAdmission.Permit busy = jobService.admit(DataSize.ofMegabytes(1).toBytes());
+
+        // Act & Assert
+        assertThrows(UploadThrottledException.class,
+                () -> indexService.addBatch(new ByteArrayInputStream(csv), ContactFileFormat.CSV, csv.length));
+        assertEquals(0, indexService.size());
+
+        // Al liberarse el presupuesto, el mismo archivo se indexa y devuelve su permiso
+        busy.release();
+        indexService.addBatch(new ByteArrayInputStream(csv), ContactFileFormat.CSV, csv.length);
+        assertEquals(1, indexService.size());
+        jobService.admit(DataSize.ofMegabytes(1).toBytes()).release();
+    }
+
+    private static Contact contact(String id, String email) {
+        Contact contact = new Contact();
+        contact.setId(id);
+        contact.setEmail(email);
+        return contact;
+    }
+}
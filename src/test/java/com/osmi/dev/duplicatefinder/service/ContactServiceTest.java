@@ -1,7 +1,13 @@
 package com.osmi.dev.duplicatefinder.service;
 
+import com.osmi.dev.duplicatefinder.config.DuplicateFinderProperties;
 import com.osmi.dev.duplicatefinder.model.Contact;
+import com.osmi.dev.duplicatefinder.model.ContactFileFormat;
+import com.osmi.dev.duplicatefinder.model.DuplicateGroup;
 import com.osmi.dev.duplicatefinder.model.DuplicateMatch;
+import com.osmi.dev.duplicatefinder.model.MatchPrecision;
+import com.osmi.dev.duplicatefinder.model.MatchQuery;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
@@ -9,11 +15,33 @@ import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -126,6 +154,281 @@ class ContactServiceTest {
         assertTrue(matches.isEmpty(), "La lista de coincidencias debería estar vacía.");
     }
 
+    @Test
+    @DisplayName("El índice de bloqueo debe devolver lo mismo que la comparación de todos contra todos")
+    void findDuplicates_shouldMatchExhaustiveComparison() {
+        // Arrange: datos con emails en distinto caso, apellidos repetidos y campos vacíos o nulos
+        List<Contact> contacts = randomContacts(400, 42L);
+
+        // Act
+        List<DuplicateMatch> matches = contactService.findDuplicates(contacts);
+
+        // Assert
+        assertFalse(matches.isEmpty());
+        assertEquals(exhaustiveDuplicates(contacts), matches);
+    }
+
+    @Test
+    @DisplayName("El modo paralelo debe devolver exactamente lo mismo y en el mismo orden que el secuencial")
+    void findDuplicates_parallelShouldMatchSequential() {
+        // Arrange: suficientes filas para repartir el trabajo en varios tramos
+        List<Contact> contacts = randomContacts(20_000, 7L, 3_000);
+        ContactService sequential = new ContactService(propertiesWithParallelism(1));
+        ContactService parallel = new ContactService(propertiesWithParallelism(4));
+
+        // Act
+        List<DuplicateMatch> expected = sequential.findDuplicates(contacts);
+        List<DuplicateMatch> actual = parallel.findDuplicates(contacts);
+
+        // Assert
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actual);
+    }
+
+    static DuplicateFinderProperties propertiesWithParallelism(int parallelism) {
+        DuplicateFinderProperties properties = new DuplicateFinderProperties();
+        properties.getMatching().setParallelism(parallelism);
+        return properties;
+    }
+
+    /**
+     * Genera contactos con pocos valores distintos por campo para forzar coincidencias.
+     */
+    static List<Contact> randomContacts(int size, long seed) {
+        return randomContacts(size, seed, 3);
+    }
+
+    /**
+     * Genera contactos cuyos campos se eligen entre {@code distinct} valores, con variantes de
+     * mayúsculas, blancos, vacíos y nulos.
+     */
+    static List<Contact> randomContacts(int size, long seed, int distinct) {
+        Random random = new Random(seed);
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Contact contact = new Contact();
+            contact.setId(String.valueOf(i));
+            contact.setEmail(randomValue(random, "usuario" + random.nextInt(distinct) + "@test.com"));
+            contact.setApellido(randomValue(random, (random.nextBoolean() ? "Apellído" : "Apellido") + random.nextInt(distinct)));
+            contact.setCodigoPostal(randomValue(random, String.valueOf(28000 + random.nextInt(distinct))));
+            contacts.add(contact);
+        }
+        return contacts;
+    }
+
+    private static String randomValue(Random random, String value) {
+        return switch (random.nextInt(6)) {
+            case 0 -> null;
+            case 1 -> "";
+            case 2 -> "  ";
+            case 3 -> " " + value.toUpperCase();
+            default -> value;
+        };
+    }
+
+    /**
+     * Implementación de referencia: compara cada contacto con todos los demás,
+     * con la misma normalización de campos que el servicio.
+     */
+    static List<DuplicateMatch> exhaustiveDuplicates(List<Contact> contacts) {
+        List<DuplicateMatch> matches = new ArrayList<>();
+        for (int i = 0; i < contacts.size(); i++) {
+            for (int j = i + 1; j < contacts.size(); j++) {
+                Contact c1 = contacts.get(i);
+                Contact c2 = contacts.get(j);
+                int score = 0;
+                String email = ContactNormalizer.email(c1.getEmail());
+                if (email != null && email.equals(ContactNormalizer.email(c2.getEmail()))) {
+                    score += 90;
+                }
+                String codigoPostal = ContactNormalizer.codigoPostal(c1.getCodigoPostal());
+                String apellido = ContactNormalizer.apellido(c1.getApellido());
+                if (codigoPostal != null && codigoPostal.equals(ContactNormalizer.codigoPostal(c2.getCodigoPostal())) &&
+                        apellido != null && apellido.equals(ContactNormalizer.apellido(c2.getApellido()))) {
+                    score += 50;
+                }
+                if (score > 85) {
+                    matches.add(new DuplicateMatch(c1.getId(), c2.getId(), "Alta", score));
+                } else if (score > 20) {
+                    matches.add(new DuplicateMatch(c1.getId(), c2.getId(), "Baja", score));
+                }
+            }
+        }
+        return matches;
+    }
+
+    @Test
+    @DisplayName("La normalización debe ignorar acentos, mayúsculas y espacios sobrantes")
+    void findDuplicates_shouldNormalizeFieldsBeforeComparing() {
+        // Arrange: mismo contacto escrito de dos formas
+        Contact c1 = new Contact();
+        c1.setId("1");
+        c1.setApellido("García");
+        c1.setCodigoPostal("28 080");
+        c1.setEmail(" Maria.Garcia@Test.com");
+
+        Contact c2 = new Contact();
+        c2.setId("2");
+        c2.setApellido("GARCIA ");
+        c2.setCodigoPostal("28080");
+        c2.setEmail("maria.garcia@test.com");
+
+        // Act
+        List<DuplicateMatch> matches = contactService.findDuplicates(List.of(c1, c2));
+
+        // Assert
+        assertEquals(1, matches.size());
+        assertEquals(140, matches.get(0).getScore());
+    }
+
+    @Test
+    @DisplayName("La comparación aproximada debe detectar erratas en nombre, apellido y dirección")
+    void findDuplicates_shouldMatchTyposWhenFuzzyIsEnabled() {
+        // Arrange: mismo contacto con erratas y sin email ni CP en común
+        Contact c1 = new Contact();
+        c1.setId("1");
+        c1.setNombre("José");
+        c1.setApellido("Gonzalez");
+        c1.setDireccion("Calle Mayor 12");
+
+        Contact c2 = new Contact();
+        c2.setId("2");
+        c2.setNombre("Jose");
+        c2.setApellido("Gonsales");
+        c2.setDireccion("Cale Mayor 12");
+        List<Contact> contacts = List.of(c1, c2);
+
+        DuplicateFinderProperties properties = propertiesWithParallelism(1);
+        properties.getFuzzy().setEnabled(true);
+
+        // Act
+        List<DuplicateMatch> withoutFuzzy = contactService.findDuplicates(contacts);
+        List<DuplicateMatch> withFuzzy = new ContactService(properties).findDuplicates(contacts);
+
+        // Assert: 15 por nombre + 15 por dirección
+        assertTrue(withoutFuzzy.isEmpty());
+        assertEquals(1, withFuzzy.size());
+        assertEquals("Baja", withFuzzy.get(0).getPrecision());
+        assertEquals(30, withFuzzy.get(0).getScore());
+    }
+
+    @Test
+    @DisplayName("Debe rechazar al arrancar unas reglas sin ninguna clave de bloqueo")
+    void constructor_shouldRejectRulesWithoutBlockingKey() {
+        // Arrange: solo Levenshtein y sin comparación aproximada, no habría pares candidatos
+        DuplicateFinderProperties properties = new DuplicateFinderProperties();
+        properties.getScoring().getRules().add(
+                new DuplicateFinderProperties.Rule(List.of(DuplicateFinderProperties.ContactField.NOMBRE),
+                        DuplicateFinderProperties.Comparison.LEVENSHTEIN, 90, 2, 0));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new ContactService(properties));
+        properties.getFuzzy().setEnabled(true);
+        assertDoesNotThrow(() -> new ContactService(properties));
+    }
+
+    @Test
+    @DisplayName("Debe puntuar con las reglas y umbrales configurados")
+    void findDuplicates_shouldApplyConfiguredRules() {
+        // Arrange: email exacto 40, nombre y apellido 30, prefijo de 3 cifras del CP 20
+        DuplicateFinderProperties properties = propertiesWithParallelism(1);
+        properties.getScoring().setAltaThreshold(60);
+        properties.getScoring().setBajaThreshold(25);
+        properties.getScoring().getRules().addAll(List.of(
+                new DuplicateFinderProperties.Rule(List.of(DuplicateFinderProperties.ContactField.EMAIL),
+                        DuplicateFinderProperties.Comparison.EXACT, 40, 0, 0),
+                new DuplicateFinderProperties.Rule(List.of(DuplicateFinderProperties.ContactField.NOMBRE,
+                        DuplicateFinderProperties.ContactField.APELLIDO),
+                        DuplicateFinderProperties.Comparison.CASE_INSENSITIVE, 30, 0, 0),
+                new DuplicateFinderProperties.Rule(List.of(DuplicateFinderProperties.ContactField.CODIGO_POSTAL),
+                        DuplicateFinderProperties.Comparison.PREFIX, 20, 0, 3)));
+        ContactService service = new ContactService(properties);
+
+        List<Contact> contacts = List.of(
+                contact("1", "Ana", "Pérez", "ana@x.com", "28080"),
+                contact("2", "ana", "perez", "ANA@x.com", "28013"),
+                contact("3", "Ana", "Perez", "ana@x.com", "41001"),
+                contact("4", "Luis", "Gil", "luis@x.com", "28999"));
+
+        // Act
+        List<DuplicateMatch> result = service.findDuplicates(contacts);
+        List<DuplicateMatch> alta = service.findDuplicates(contacts,
+                new MatchQuery(0, MatchPrecision.ALTA, null), ProgressListener.NONE);
+
+        // Assert: el email solo coincide si es idéntico y compartir solo el prefijo del CP no basta
+        assertEquals(3, result.size());
+        assertEquals(new DuplicateMatch("1", "2", "Baja", 50), result.get(0));
+        assertEquals(new DuplicateMatch("1", "3", "Alta", 70), result.get(1));
+        assertEquals(new DuplicateMatch("2", "3", "Baja", 30), result.get(2));
+        assertEquals(List.of(result.get(1)), alta);
+    }
+
+    private static Contact contact(String id, String nombre, String apellido, String email, String codigoPostal) {
+        Contact contact = new Contact();
+        contact.setId(id);
+        contact.setNombre(nombre);
+        contact.setApellido(apellido);
+        contact.setEmail(email);
+        contact.setCodigoPostal(codigoPostal);
+        return contact;
+    }
+
+    // --- PRUEBAS PARA EL MÉTODO findDuplicateGroups ---
+
+    @Test
+    @DisplayName("Debe agrupar contactos conectados por coincidencias con su puntuación máxima")
+    void findDuplicateGroups_shouldMergeConnectedContacts() {
+        // Arrange: 1 y 2 comparten email, 2 y 3 comparten apellido y CP, 4 no coincide con nadie
+        Contact c1 = new Contact();
+        c1.setId("1");
+        c1.setEmail("ana@test.com");
+
+        Contact c2 = new Contact();
+        c2.setId("2");
+        c2.setEmail("ana@test.com");
+        c2.setApellido("Lopez");
+        c2.setCodigoPostal("28080");
+
+        Contact c3 = new Contact();
+        c3.setId("3");
+        c3.setApellido("Lopez");
+        c3.setCodigoPostal("28080");
+
+        Contact c4 = new Contact();
+        c4.setId("4");
+        c4.setEmail("otro@test.com");
+
+        // Act
+        List<DuplicateGroup> groups = contactService.findDuplicateGroups(List.of(c1, c2, c3, c4), ProgressListener.NONE);
+
+        // Assert
+        assertEquals(1, groups.size());
+        assertEquals("1", groups.get(0).getRepresentativeId());
+        assertEquals(List.of("1", "2", "3"), groups.get(0).getMemberIds());
+        assertEquals(90, groups.get(0).getMaxScore());
+    }
+
+    @Test
+    @DisplayName("Los grupos deben cubrir exactamente los mismos contactos que los pares")
+    void findDuplicateGroups_shouldCoverSameContactsAsPairs() {
+        // Arrange
+        List<Contact> contacts = randomContacts(2_000, 11L, 200);
+
+        // Act
+        List<DuplicateMatch> matches = contactService.findDuplicates(contacts);
+        List<DuplicateGroup> groups = contactService.findDuplicateGroups(contacts, ProgressListener.NONE);
+
+        // Assert: todo contacto con algún par está en exactamente un grupo
+        Set<String> inPairs = new HashSet<>();
+        matches.forEach(m -> {
+            inPairs.add(m.getContactIdOrigen());
+            inPairs.add(m.getContactIdCoincidencia());
+        });
+        List<String> inGroups = groups.stream().flatMap(g -> g.getMemberIds().stream()).toList();
+        assertEquals(inPairs, new HashSet<>(inGroups));
+        assertEquals(inGroups.size(), inPairs.size());
+    }
+
     // --- PRUEBA PARA EL MÉTODO parseContactsFromExcel ---
 
     @Test
@@ -161,4 +464,573 @@ class ContactServiceTest {
             assertEquals("Perez", parsedContact.getApellido());
         }
     }
+
+    @Test
+    @DisplayName("La consulta de precisión alta debe devolver las mismas coincidencias comparando menos pares")
+    void findDuplicates_altaQueryShouldPruneCandidates() {
+        // Arrange
+        List<Contact> contacts = randomContacts(3_000, 17L, 40);
+        AtomicLong allPairs = new AtomicLong();
+        AtomicLong altaPairs = new AtomicLong();
+
+        // Act
+        List<DuplicateMatch> all = contactService.findDuplicates(contacts, countingPairs(allPairs));
+        List<DuplicateMatch> alta = contactService.findDuplicates(contacts,
+                new MatchQuery(0, MatchPrecision.ALTA, null), countingPairs(altaPairs));
+        List<DuplicateMatch> strong = contactService.findDuplicates(contacts,
+                new MatchQuery(100, null, null), ProgressListener.NONE);
+
+        // Assert
+        assertEquals(all.stream().filter(m -> m.getPrecision().equals("Alta")).toList(), alta);
+        assertEquals(all.stream().filter(m -> m.getScore() >= 100).toList(), strong);
+        assertFalse(alta.isEmpty());
+        assertTrue(altaPairs.get() < allPairs.get());
+    }
+
+    @Test
+    @DisplayName("El top-K debe devolver las K coincidencias de mayor puntuación, también en paralelo")
+    void findDuplicates_topKShouldReturnHighestScores() {
+        // Arrange
+        List<Contact> contacts = randomContacts(20_000, 19L, 2_000);
+        MatchQuery query = new MatchQuery(0, null, 1_000);
+        ContactService parallel = new ContactService(propertiesWithParallelism(4));
+
+        // Act
+        List<DuplicateMatch> all = contactService.findDuplicates(contacts);
+        List<DuplicateMatch> top = contactService.findDuplicates(contacts, query, ProgressListener.NONE);
+        List<DuplicateMatch> parallelTop = parallel.findDuplicates(contacts, query, ProgressListener.NONE);
+        parallel.shutdown();
+
+        // Assert: orden estable por puntuación descendente sobre el orden original
+        List<DuplicateMatch> expected = all.stream()
+                .sorted(Comparator.comparingInt(DuplicateMatch::getScore).reversed())
+                .limit(1_000)
+                .toList();
+        assertTrue(all.size() > 1_000);
+        assertEquals(expected, top);
+        assertEquals(expected, parallelTop);
+    }
+
+    private static ProgressListener countingPairs(AtomicLong pairs) {
+        return new ProgressListener() {
+            @Override
+            public void pairsCompared(long compared) {
+                pairs.addAndGet(compared);
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("La lectura en streaming debe conservar la conversión de celdas y omitir filas sin ID")
+    void parseContactsFromExcel_shouldKeepCellSemanticsWhenStreaming() throws Exception {
+        // Arrange: celdas numéricas con decimales, fórmulas, booleanos y huecos entre columnas
+        try (Workbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("Contacts");
+            sheet.createRow(0).createCell(0).setCellValue("Header 1");
+            sheet.createRow(1).createCell(0).setCellValue("Header 2");
+
+            Row first = sheet.createRow(2);
+            first.createCell(0).setCellValue(7.9); // ID numérico con decimales
+            first.createCell(2).setCellValue("Lopez"); // Sin nombre
+            first.createCell(3).setCellFormula("\"a\"&\"b\""); // Fórmula
+            first.createCell(4).setCellValue(true); // Booleano
+            first.createCell(5).setCellValue("Calle Mayor 1");
+
+            sheet.createRow(3).createCell(1).setCellValue("Sin ID");
+
+            Row third = sheet.createRow(5); // Fila 4 inexistente
+            third.createCell(0).setCellValue("A-9");
+            third.createCell(4).setCellValue(28080);
+
+            workbook.write(out);
+
+            // Act: recogemos los contactos de uno en uno
+            List<Contact> contacts = new ArrayList<>();
+            contactService.parseContactsFromExcel(new ByteArrayInputStream(out.toByteArray()), contacts::add);
+
+            // Assert
+            assertEquals(2, contacts.size());
+            Contact parsed = contacts.get(0);
+            assertEquals("7", parsed.getId());
+            assertEquals("", parsed.getNombre());
+            assertEquals("Lopez", parsed.getApellido());
+            assertEquals("", parsed.getEmail());
+            assertEquals("", parsed.getCodigoPostal());
+            assertEquals("Calle Mayor 1", parsed.getDireccion());
+            assertEquals("A-9", contacts.get(1).getId());
+            assertEquals("28080", contacts.get(1).getCodigoPostal());
+        }
+    }
+
+    @Test
+    @DisplayName("El modo en tubería debe encontrar los mismos pares que leer y luego puntuar")
+    void findDuplicatesPipelined_shouldMatchBatchResult(@TempDir Path dir) throws Exception {
+        // Arrange: una cola pequeña para que el lector tenga que esperar al indexador
+        List<Contact> contacts = randomContacts(3_000, 13L, 60);
+        String[][] rows = new String[contacts.size()][];
+        for (int i = 0; i < rows.length; i++) {
+            Contact c = contacts.get(i);
+            rows[i] = new String[]{c.getId(), c.getNombre(), c.getApellido(), c.getEmail(), c.getCodigoPostal(), c.getDireccion()};
+        }
+        Path file = dir.resolve("contacts.xlsx");
+        Files.write(file, UploadJobServiceTest.workbook(rows));
+        DuplicateFinderProperties properties = new DuplicateFinderProperties();
+        properties.getMatching().setPipelineQueueCapacity(8);
+        ContactService service = new ContactService(properties);
+
+        // Act
+        List<DuplicateMatch> expected;
+        try (InputStream in = Files.newInputStream(file)) {
+            expected = service.findDuplicates(service.parseContactsFromExcel(in));
+        }
+        List<DuplicateMatch> pipelined = new ArrayList<>();
+        AtomicLong rowsParsed = new AtomicLong();
+        service.findDuplicatesPipelined(file, pipelined::add, new ProgressListener() {
+            @Override
+            public void rowParsed() {
+                rowsParsed.incrementAndGet();
+            }
+        });
+        List<DuplicateMatch> stored = service.findDuplicatesPipelined(file, ContactFileFormat.XLSX, ProgressListener.NONE);
+
+        // Assert
+        assertFalse(expected.isEmpty());
+        assertEquals(expected.size(), pipelined.size());
+        assertEquals(new HashSet<>(expected), new HashSet<>(pipelined));
+        assertEquals(contacts.size(), rowsParsed.get());
+        assertInstanceOf(MatchStore.class, stored);
+        assertEquals(pipelined, stored);
+    }
+
+    @Test
+    @DisplayName("El modo fuera de memoria debe devolver los mismos pares y en el mismo orden que en memoria")
+    void findDuplicatesOutOfCore_shouldMatchInMemoryResult(@TempDir Path dir) throws Exception {
+        // Arrange: tramos pequeños para forzar muchos volcados a disco, con el bloque fonético activo
+        List<Contact> contacts = randomContacts(3_000, 17L, 40);
+        String[][] rows = new String[contacts.size()][];
+        for (int i = 0; i < rows.length; i++) {
+            Contact c = contacts.get(i);
+            rows[i] = new String[]{c.getId(), c.getNombre(), c.getApellido(), c.getEmail(), c.getCodigoPostal(), c.getDireccion()};
+        }
+        Path file = dir.resolve("contacts.xlsx");
+        Files.write(file, UploadJobServiceTest.workbook(rows));
+        DuplicateFinderProperties properties = propertiesWithParallelism(1);
+        properties.getMatching().setSortRunSize(100);
+        properties.getFuzzy().setEnabled(true);
+        ContactService service = new ContactService(properties);
+        // Bloques pequeños para que los mayores se puntúen por tramos desde disco
+        properties.getMatching().setMaxBlockRows(16);
+        ContactService chunked = new ContactService(properties);
+
+        // Act
+        List<DuplicateMatch> expected;
+        try (InputStream in = Files.newInputStream(file)) {
+            expected = service.findDuplicates(service.parseContactsFromExcel(in));
+        }
+        List<DuplicateMatch> outOfCore = new ArrayList<>();
+        service.findDuplicatesOutOfCore(file, ContactFileFormat.XLSX, outOfCore::add, ProgressListener.NONE);
+        List<DuplicateMatch> chunkedOutOfCore = new ArrayList<>();
+        chunked.findDuplicatesOutOfCore(file, ContactFileFormat.XLSX, chunkedOutOfCore::add, ProgressListener.NONE);
+
+        // Assert
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, outOfCore);
+        assertEquals(expected, chunkedOutOfCore);
+    }
+
+    @Test
+    @DisplayName("El modo fuera de memoria debe poder devolver las coincidencias guardadas en disco")
+    void findDuplicatesOutOfCore_shouldSpillResultsToDisk(@TempDir Path dir) throws Exception {
+        // Arrange
+        List<Contact> contacts = randomContacts(2_000, 29L, 30);
+        String[][] rows = new String[contacts.size()][];
+        for (int i = 0; i < rows.length; i++) {
+            Contact c = contacts.get(i);
+            rows[i] = new String[]{c.getId(), c.getNombre(), c.getApellido(), c.getEmail(), c.getCodigoPostal(), c.getDireccion()};
+        }
+        Path file = dir.resolve("contacts.xlsx");
+        Files.write(file, UploadJobServiceTest.workbook(rows));
+        List<DuplicateMatch> expected;
+        try (InputStream in = Files.newInputStream(file)) {
+            expected = contactService.findDuplicates(contactService.parseContactsFromExcel(in));
+        }
+
+        // Act
+        List<DuplicateMatch> spilled = contactService.findDuplicatesOutOfCore(file, ContactFileFormat.XLSX, ProgressListener.NONE);
+
+        // Assert: recorrido completo, acceso por posición y páginas que cruzan bloques
+        try (AutoCloseable ignored = (AutoCloseable) spilled) {
+            assertTrue(expected.size() > SpilledMatchList.BLOCK_MATCHES);
+            assertEquals(expected, spilled);
+            assertEquals(expected.get(expected.size() - 1), spilled.get(spilled.size() - 1));
+            assertEquals(expected.subList(250, 300), spilled.subList(250, 300));
+        }
+    }
+
+    @Test
+    @DisplayName("El reparto en fragmentos debe dar los mismos pares y en el mismo orden que la búsqueda secuencial")
+    void shardCoordinator_shouldMatchSequentialResult() throws Exception {
+        // Arrange: con el bloque fonético activo cada contacto cae en hasta tres fragmentos
+        List<Contact> contacts = randomContacts(3_000, 23L, 40);
+        DuplicateFinderProperties properties = propertiesWithParallelism(1);
+        properties.getFuzzy().setEnabled(true);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ContactService service = new ContactService(properties, new DuplicateFinderMetrics(registry));
+        ShardCoordinator coordinator = service.newShardCoordinator(7);
+        MatchQuery top = new MatchQuery(0, null, 25);
+
+        // Act
+        List<DuplicateMatch> sharded = coordinator.findDuplicates(contacts, new MatchQuery(), ProgressListener.NONE);
+        List<DuplicateMatch> shardedTop = coordinator.findDuplicates(contacts, top, ProgressListener.NONE);
+        long shardedSearches = registry.get("duplicatefinder.match").tag("mode", "pairs").timer().count();
+        double shardedPairs = registry.get("duplicatefinder.pairs.compared").counter().count();
+
+        // Assert
+        List<DuplicateMatch> expected = service.findDuplicates(contacts);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, sharded);
+        assertEquals(service.findDuplicates(contacts, top, ProgressListener.NONE), shardedTop);
+        // Assert: las dos búsquedas por fragmentos cuentan como búsquedas y pares comparados
+        assertEquals(2, shardedSearches);
+        assertTrue(shardedPairs > 0);
+    }
+
+    @Test
+    @DisplayName("Un par que comparte email y código postal más apellido debe aparecer una sola vez")
+    void shardCoordinator_shouldDeduplicatePairsFoundByTwoKeys() throws Exception {
+        // Arrange: los dos contactos comparten las dos claves, que van a fragmentos distintos
+        List<Contact> contacts = List.of(
+                contact("1", "Ana", "Lopez", "ana@test.com", "28080"),
+                contact("2", "Ana", "López", "ANA@test.com", "28080"));
+        ShardCoordinator coordinator = contactService.newShardCoordinator(64);
+        assertEquals(2, coordinator.partition(contacts).size());
+
+        // Act
+        List<DuplicateMatch> matches = coordinator.findDuplicates(contacts, new MatchQuery(), ProgressListener.NONE);
+
+        // Assert
+        assertEquals(1, matches.size());
+        assertEquals(140, matches.getFirst().getScore());
+    }
+
+    @Test
+    @DisplayName("El modo en tubería debe propagar el error del lector")
+    void findDuplicatesPipelined_shouldPropagateReaderFailure(@TempDir Path dir) throws Exception {
+        // Arrange
+        Path file = dir.resolve("contacts.xlsx");
+        Files.writeString(file, "no es un excel");
+
+        // Act & Assert
+        assertThrows(Exception.class,
+                () -> contactService.findDuplicatesPipelined(file, match -> { }, ProgressListener.NONE));
+    }
+
+    @Test
+    @DisplayName("Debe leer todas las hojas en paralelo y entregar los contactos en el orden del libro")
+    void parseContactsFromExcel_shouldReadAllSheetsInWorkbookOrder() throws Exception {
+        // Arrange: tres hojas con sus cabeceras y una hoja de notas sin contactos. Cada hoja tiene
+        // más filas que su cola y hay menos hilos que hojas, así que parte de cada hoja pasa por
+        // disco y una de ellas espera a que quede un hilo libre
+        byte[] content;
+        try (Workbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (String name : List.of("Contactos 1", "Contactos 2", "Notas", "Contactos 3")) {
+                Sheet sheet = workbook.createSheet(name);
+                sheet.createRow(0).createCell(0).setCellValue("Header 1");
+                sheet.createRow(1).createCell(0).setCellValue("Header 2");
+                if (!name.equals("Notas")) {
+                    for (int i = 0; i < 2_500; i++) {
+                        sheet.createRow(i + 2).createCell(0).setCellValue(name.charAt(name.length() - 1) + "-" + i);
+                    }
+                }
+            }
+            workbook.write(out);
+            content = out.toByteArray();
+        }
+        DuplicateFinderProperties all = new DuplicateFinderProperties();
+        all.getExcel().setSheets(List.of("*"));
+        all.getExcel().setSheetParallelism(2);
+        DuplicateFinderProperties subset = new DuplicateFinderProperties();
+        subset.getExcel().setSheets(List.of("Contactos 3", "Contactos 2"));
+
+        // Act
+        List<Contact> fromAll = new ContactService(all).parseContactsFromExcel(new ByteArrayInputStream(content));
+        List<Contact> fromSubset = new ContactService(subset).parseContactsFromExcel(new ByteArrayInputStream(content));
+        List<Contact> fromFirst = contactService.parseContactsFromExcel(new ByteArrayInputStream(content));
+
+        // Assert
+        assertTrue(2_500 > ExcelContactReader.SHEET_QUEUE_CAPACITY);
+        assertEquals(7_500, fromAll.size());
+        assertEquals("1-0", fromAll.getFirst().getId());
+        assertEquals("2-0", fromAll.get(2_500).getId());
+        assertEquals("3-2499", fromAll.getLast().getId());
+        assertEquals(5_000, fromSubset.size());
+        assertEquals("2-0", fromSubset.getFirst().getId());
+        assertEquals("3-0", fromSubset.get(2_500).getId());
+        assertEquals(2_500, fromFirst.size());
+    }
+
+    @Test
+    @DisplayName("Las hojas deben terminar de leerse a la vez, sin esperar a que se entreguen las anteriores")
+    void parseContactsFromExcel_shouldFinishSheetsConcurrently() throws Exception {
+        // Arrange: cuatro hojas con más filas que su cola y un hilo del pool por cada hoja extra
+        byte[] content;
+        try (Workbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (int s = 1; s <= 4; s++) {
+                Sheet sheet = workbook.createSheet("Contactos " + s);
+                sheet.createRow(0).createCell(0).setCellValue("Header 1");
+                sheet.createRow(1).createCell(0).setCellValue("Header 2");
+                for (int i = 0; i < 2_500; i++) {
+                    sheet.createRow(i + 2).createCell(0).setCellValue(s + "-" + i);
+                }
+            }
+            workbook.write(out);
+            content = out.toByteArray();
+        }
+        DuplicateFinderProperties properties = new DuplicateFinderProperties();
+        properties.getExcel().setSheets(List.of("*"));
+        properties.getExcel().setSheetParallelism(3);
+        ExcelContactReader reader = new ExcelContactReader(properties.getExcel());
+        AtomicBoolean othersFinished = new AtomicBoolean();
+        List<String> ids = new ArrayList<>();
+
+        // Act: el consumidor se queda en el primer contacto hasta que las demás hojas terminan
+        reader.read(new ByteArrayInputStream(content), contact -> {
+            if (ids.isEmpty()) {
+                othersFinished.set(awaitIdleThreads("sheet-reader-", 3, Duration.ofSeconds(20)));
+            }
+            ids.add(contact.getId());
+        });
+
+        // Assert: ninguna hoja se quedó esperando a su turno y el orden sigue siendo el del libro
+        assertTrue(othersFinished.get());
+        assertEquals(10_000, ids.size());
+        assertEquals("1-0", ids.getFirst());
+        assertEquals("2-0", ids.get(2_500));
+        assertEquals("3-2499", ids.get(7_499));
+        assertEquals("4-2499", ids.getLast());
+    }
+
+    /**
+     * Espera a que haya {@code count} hilos con el prefijo dado y todos estén ociosos en su pool,
+     * es decir, que hayan terminado su tarea.
+     */
+    private static boolean awaitIdleThreads(String prefix, int count, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            List<StackTraceElement[]> stacks = Thread.getAllStackTraces().entrySet().stream()
+                    .filter(entry -> entry.getKey().getName().startsWith(prefix))
+                    .map(Map.Entry::getValue)
+                    .toList();
+            boolean idle = stacks.stream().allMatch(stack -> Arrays.stream(stack)
+                    .anyMatch(frame -> frame.getMethodName().equals("getTask")));
+            if (stacks.size() == count && idle) {
+                return true;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    @DisplayName("Debe leer CSV con comillas, saltos de línea dentro de campos y filas sin ID")
+    void parseContactsFromCsv_shouldHandleQuotedFieldsAndSkipRowsWithoutId() throws Exception {
+        // Arrange: BOM, cabecera, \r\n, comillas escapadas, columnas de menos y una línea vacía
+        String csv = "\uFEFFid,nombre,apellido,email,codigoPostal,direccion\r\n"
+                + "1,\"Pérez, Ana\",López,ana@test.com,28080,\"Calle \"\"Mayor\"\"\n12\"\r\n"
+                + ",Sin ID,,,,\n"
+                + "\n"
+                + "2,Luis\n";
+
+        // Act
+        List<Contact> contacts = contactService.parseContactsFromCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        // Assert
+        assertEquals(2, contacts.size());
+        Contact first = contacts.get(0);
+        assertEquals("1", first.getId());
+        assertEquals("Pérez, Ana", first.getNombre());
+        assertEquals("López", first.getApellido());
+        assertEquals("ana@test.com", first.getEmail());
+        assertEquals("28080", first.getCodigoPostal());
+        assertEquals("Calle \"Mayor\"\n12", first.getDireccion());
+        assertEquals("2", contacts.get(1).getId());
+        assertEquals("Luis", contacts.get(1).getNombre());
+        assertEquals("", contacts.get(1).getEmail());
+    }
+
+    @Test
+    @DisplayName("Debe leer un CSV comprimido con gzip igual que sin comprimir, con delimitador configurable")
+    void parseContactsFromCsv_shouldReadGzipWithCustomDelimiter(@TempDir Path dir) throws Exception {
+        // Arrange: más filas que el búfer de lectura para cruzar varios bloques
+        DuplicateFinderProperties properties = new DuplicateFinderProperties();
+        properties.getCsv().setDelimiter(';');
+        properties.getCsv().setHeaderRows(2);
+        ContactService service = new ContactService(properties);
+        StringBuilder csv = new StringBuilder("Contactos\nid;nombre;apellido;email;codigoPostal;direccion\n");
+        for (int i = 0; i < 5_000; i++) {
+            csv.append(i).append(";Nombre;Apellído").append(i % 50).append(";user").append(i % 700)
+                    .append("@test.com;").append(28000 + i % 30).append(";Calle ").append(i).append('\n');
+        }
+        byte[] plain = csv.toString().getBytes(StandardCharsets.UTF_8);
+        Path gzipFile = dir.resolve("contacts.csv.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzipFile))) {
+            out.write(plain);
+        }
+
+        // Act
+        List<Contact> fromStream = service.parseContactsFromCsv(new ByteArrayInputStream(plain));
+        List<Contact> fromGzipFile = new ArrayList<>();
+        service.parseContactsFromCsv(gzipFile, fromGzipFile::add);
+
+        // Assert
+        assertEquals(5_000, fromStream.size());
+        assertEquals(fromStream, fromGzipFile);
+        assertEquals("Apellído7", fromStream.get(7).getApellido());
+        assertEquals("Calle 4999", fromStream.get(4_999).getDireccion());
+    }
+
+    @Test
+    @DisplayName("Debe quitar la marca BOM aunque llegue partida entre varias lecturas")
+    void parseContactsFromCsv_shouldSkipBomSplitAcrossReads() throws Exception {
+        // Arrange: sin cabecera, así una marca sin quitar acabaría en el id, y un stream que entrega
+        // un byte por lectura
+        DuplicateFinderProperties properties = new DuplicateFinderProperties();
+        properties.getCsv().setHeaderRows(0);
+        ContactService service = new ContactService(properties);
+        byte[] csv = "\uFEFF1,Ana,Lopez,ana@test.com,28080,Calle 1\n".getBytes(StandardCharsets.UTF_8);
+        InputStream slow = new ByteArrayInputStream(csv) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+
+            @Override
+            public synchronized int available() {
+                return 0;
+            }
+        };
+
+        // Act
+        List<Contact> contacts = service.parseContactsFromCsv(slow);
+
+        // Assert
+        assertEquals(1, contacts.size());
+        assertEquals("1", contacts.getFirst().getId());
+    }
+
+    @Test
+    @DisplayName("Solo los .csv.gz deben leerse como CSV por el nombre; otro .gz depende del tipo de contenido")
+    void detect_shouldOnlyTreatCsvGzAsCsvByName() {
+        // Act & Assert
+        assertEquals(ContactFileFormat.CSV, ContactFileFormat.detect("contactos.CSV.GZ", null));
+        assertEquals(ContactFileFormat.XLSX, ContactFileFormat.detect("contactos.xlsx.gz", "application/octet-stream"));
+        assertEquals(ContactFileFormat.CSV, ContactFileFormat.detect("contactos.gz", "application/gzip"));
+        assertEquals(ContactFileFormat.XLSX, ContactFileFormat.detect("contactos.tsv", null));
+    }
+
+    @Test
+    @DisplayName("Debe registrar métricas de filas leídas, omitidas, pares comparados y coincidencias")
+    void shouldRecordPipelineMetrics() throws Exception {
+        // Arrange: dos contactos con el mismo email y una fila sin ID
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ContactService service = new ContactService(new DuplicateFinderProperties(), new DuplicateFinderMetrics(registry));
+        try (Workbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("Contacts");
+            sheet.createRow(0).createCell(0).setCellValue("Header 1");
+            sheet.createRow(1).createCell(0).setCellValue("Header 2");
+            for (int i = 2; i < 4; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue("C" + i);
+                row.createCell(3).setCellValue("ana@test.com");
+            }
+            sheet.createRow(4).createCell(1).setCellValue("Sin ID");
+            workbook.write(out);
+
+            // Act
+            List<Contact> contacts = service.parseContactsFromExcel(new ByteArrayInputStream(out.toByteArray()));
+            service.findDuplicates(contacts);
+        }
+
+        // Assert
+        assertEquals(2, registry.get("duplicatefinder.rows.parsed").counter().count());
+        assertEquals(1, registry.get("duplicatefinder.rows.skipped").counter().count());
+        assertEquals(1, registry.get("duplicatefinder.pairs.compared").counter().count());
+        assertEquals(1, registry.get("duplicatefinder.matches").tag("precision", "Alta").counter().count());
+        assertEquals(1, registry.get("duplicatefinder.parse").tag("format", "xlsx").timer().count());
+        assertEquals(1, registry.get("duplicatefinder.match").tag("mode", "pairs").timer().count());
+    }
+
+    @Test
+    @DisplayName("Con un solo turno de puntuación, muchas búsquedas en hilos virtuales deben dar el mismo resultado")
+    void findDuplicates_shouldLimitConcurrentScoringOnVirtualThreads() throws Exception {
+        // Arrange
+        DuplicateFinderProperties properties = new DuplicateFinderProperties();
+        properties.getMatching().setMaxConcurrentScoring(1);
+        ContactService service = new ContactService(properties);
+        List<Contact> contacts = List.of(
+                contact("1", "Ana", "Lopez", "ana@test.com", "28080"),
+                contact("2", "Ana", "Ruiz", "ANA@test.com", "50001"),
+                contact("3", "Luis", "Lopez", "luis@test.com", "28080"));
+        List<DuplicateMatch> expected = service.findDuplicates(contacts);
+
+        // Act
+        List<Future<List<DuplicateMatch>>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 200; i++) {
+                results.add(executor.submit(() -> service.findDuplicates(contacts)));
+            }
+        }
+
+        // Assert
+        assertEquals(2, expected.size());
+        for (Future<List<DuplicateMatch>> result : results) {
+            assertEquals(expected, result.get());
+        }
+    }
+
+    @Test
+    @DisplayName("El modo en tubería debe ocupar un turno de puntuación mientras indexa")
+    void findDuplicatesPipelined_shouldHoldScoringPermit(@TempDir Path dir) throws Exception {
+        // Arrange: un solo turno y un destino que no termina hasta que se le deja
+        DuplicateFinderProperties properties = new DuplicateFinderProperties();
+        properties.getMatching().setMaxConcurrentScoring(1);
+        ContactService service = new ContactService(properties);
+        Path file = dir.resolve("contacts.csv");
+        Files.writeString(file, "id,nombre,apellido,email,codigoPostal,direccion\n"
+                + "1,Ana,Lopez,ana@test.com,28080,Calle 1\n"
+                + "2,Ana,Ruiz,ANA@test.com,50001,Calle 2\n");
+        List<Contact> contacts = List.of(
+                contact("3", "Luis", "Sanz", "luis@test.com", "41001"),
+                contact("4", "Luis", "Gil", "LUIS@test.com", "41002"));
+        CountDownLatch matched = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            // Act
+            Future<?> pipelined = executor.submit(() -> {
+                service.findDuplicatesPipelined(file, ContactFileFormat.CSV, match -> {
+                    matched.countDown();
+                    try {
+                        proceed.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }, ProgressListener.NONE);
+                return null;
+            });
+            assertTrue(matched.await(10, TimeUnit.SECONDS));
+            Future<List<DuplicateMatch>> batch = executor.submit(() -> service.findDuplicates(contacts));
+
+            // Assert: la búsqueda en memoria espera a que la tubería suelte su turno
+            assertThrows(TimeoutException.class, () -> batch.get(200, TimeUnit.MILLISECONDS));
+            proceed.countDown();
+            pipelined.get(10, TimeUnit.SECONDS);
+            assertEquals(1, batch.get(10, TimeUnit.SECONDS).size());
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,84 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.config.DuplicateFinderProperties;
+import com.osmi.dev.duplicatefinder.model.Contact;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del formato binario de los snapshots de contactos.
+ */
+class ContactSnapshotStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Debe leer los mismos contactos que escribió, incluidos nulos y acentos")
+    void read_shouldReturnWrittenContacts() throws Exception {
+        // Arrange
+        ContactSnapshotStore store = new ContactSnapshotStore(config(20), "lectura-1");
+        List<Contact> contacts = ContactServiceTest.randomContacts(500, 3L);
+
+        // Act
+        store.write("abc-xlsx", contacts);
+        Optional<List<Contact>> read = store.read("abc-xlsx");
+
+        // Assert
+        assertTrue(read.isPresent());
+        assertEquals(contacts, read.get());
+    }
+
+    @Test
+    @DisplayName("Debe leer por ventanas un snapshot mayor que la ventana proyectada, con valores que la cruzan")
+    void read_shouldMapLargeSnapshotsInWindows() throws Exception {
+        // Arrange: ventanas de 4 KiB y una dirección más larga que una ventana entera
+        ContactSnapshotStore store = new ContactSnapshotStore(config(20), "lectura-1", 4096);
+        List<Contact> contacts = ContactServiceTest.randomContacts(2_000, 7L);
+        contacts.getFirst().setDireccion("Calle Á ".repeat(1_000));
+
+        // Act
+        store.write("grande-xlsx", contacts);
+        Optional<List<Contact>> read = store.read("grande-xlsx");
+
+        // Assert
+        assertTrue(Files.size(dir.resolve("grande-xlsx.snap")) > 10 * 4096);
+        assertTrue(read.isPresent());
+        assertEquals(contacts, read.get());
+    }
+
+    @Test
+    @DisplayName("No debe usar un snapshot generado con otra configuración de lectura y debe descartar los más antiguos")
+    void read_shouldIgnoreOtherReaderConfigurationAndEvictOldest() throws Exception {
+        // Arrange
+        ContactSnapshotStore store = new ContactSnapshotStore(config(1), "lectura-1");
+        List<Contact> contacts = ContactServiceTest.randomContacts(10, 5L);
+        store.write("a-csv", contacts);
+        Files.setLastModifiedTime(dir.resolve("a-csv.snap"), FileTime.fromMillis(0));
+
+        // Act
+        store.write("b-csv", contacts);
+
+        // Assert
+        assertTrue(store.size("a-csv").isEmpty());
+        assertTrue(store.read("b-csv").isPresent());
+        assertTrue(new ContactSnapshotStore(config(1), "lectura-2").read("b-csv").isEmpty());
+    }
+
+    private DuplicateFinderProperties.Snapshots config(int maxEntries) {
+        DuplicateFinderProperties.Snapshots config = new DuplicateFinderProperties.Snapshots();
+        config.setEnabled(true);
+        config.setDirectory(dir);
+        config.setMaxEntries(maxEntries);
+        return config;
+    }
+}
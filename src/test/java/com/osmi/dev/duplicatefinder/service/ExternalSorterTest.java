@@ -0,0 +1,86 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de la ordenación externa.
+ */
+class ExternalSorterTest {
+
+    private static final ExternalSorter.Codec<Integer> INT_CODEC = new ExternalSorter.Codec<>() {
+        @Override
+        public void write(DataOutput out, Integer record) throws IOException {
+            out.writeInt(record);
+        }
+
+        @Override
+        public Integer read(DataInput in) throws IOException {
+            return in.readInt();
+        }
+    };
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Debe mezclar los tramos en orden y borrarlos al terminar")
+    void forEachSorted_shouldMergeRunsInOrder() throws Exception {
+        // Arrange: 10 registros en tramos de 3
+        ExternalSorter<Integer> sorter = new ExternalSorter<>(INT_CODEC, Comparator.naturalOrder(), 3, directory);
+        for (int value : new int[]{7, 3, 9, 1, 8, 2, 6, 0, 5, 4}) {
+            sorter.add(value);
+        }
+        assertEquals(3, sorter.runCount());
+
+        // Act
+        List<Integer> sorted = new ArrayList<>();
+        sorter.forEachSorted(sorted::add);
+
+        // Assert
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), sorted);
+        assertEquals(0, tempFiles());
+    }
+
+    @Test
+    @DisplayName("Si la entrega falla, debe cerrar y borrar todos los tramos, también el que se estaba leyendo")
+    void forEachSorted_shouldDeleteAllRunsWhenActionFails() throws Exception {
+        // Arrange
+        ExternalSorter<Integer> sorter = new ExternalSorter<>(INT_CODEC, Comparator.naturalOrder(), 3, directory);
+        for (int value = 0; value < 10; value++) {
+            sorter.add(value);
+        }
+        assertTrue(tempFiles() > 0);
+
+        // Act: el consumidor falla a mitad de la mezcla
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> sorter.forEachSorted(value -> {
+            if (value == 4) {
+                throw new IllegalStateException("Trabajo cancelado");
+            }
+        }));
+
+        // Assert: se propaga el error original y no queda ningún tramo
+        assertEquals("Trabajo cancelado", failure.getMessage());
+        assertEquals(0, failure.getSuppressed().length);
+        assertEquals(0, tempFiles());
+    }
+
+    private long tempFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.model.DuplicateMatch;
+import com.osmi.dev.duplicatefinder.model.MatchPrecision;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del almacén compacto de coincidencias.
+ */
+class MatchStoreTest {
+
+    private final String[] ids = {"A", "B", "C", "D"};
+
+    @Test
+    @DisplayName("Debe crear las coincidencias al leerlas y concatenar almacenes en orden")
+    void shouldExposeMatchesAsListInInsertionOrder() {
+        // Arrange: más coincidencias que la capacidad inicial para forzar el crecimiento
+        MatchStore left = new MatchStore(ids);
+        MatchStore right = new MatchStore(ids);
+        for (int i = 0; i < 40; i++) {
+            left.add(0, 1, 90, MatchPrecision.ALTA);
+        }
+        right.add(2, 3, 50, MatchPrecision.BAJA);
+
+        // Act
+        left.append(right);
+
+        // Assert
+        assertEquals(41, left.size());
+        assertEquals(new DuplicateMatch("A", "B", "Alta", 90), left.getFirst());
+        assertEquals(new DuplicateMatch("C", "D", "Baja", 50), left.get(40));
+        assertEquals(40, left.count(MatchPrecision.ALTA));
+        assertEquals(1, left.count(MatchPrecision.BAJA));
+        assertEquals(List.of(new DuplicateMatch("C", "D", "Baja", 50)), left.subList(40, 41));
+    }
+
+    @Test
+    @DisplayName("La lista debe ser de solo lectura")
+    void shouldRejectModifications() {
+        // Arrange
+        MatchStore store = new MatchStore(ids);
+
+        // Act & Assert
+        assertThrows(UnsupportedOperationException.class, () -> store.add(new DuplicateMatch("A", "B", "Alta", 90)));
+        assertThrows(IndexOutOfBoundsException.class, () -> store.get(0));
+    }
+}
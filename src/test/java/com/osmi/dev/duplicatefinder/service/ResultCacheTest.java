@@ -0,0 +1,82 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.config.DuplicateFinderProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de la caché de resultados: expulsión LRU, caducidad y contadores.
+ */
+class ResultCacheTest {
+
+    private final ResultCache.CachedResult result = new ResultCache.CachedResult(List.of(), null, 0, 0);
+    private MutableClock clock;
+    private ResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        DuplicateFinderProperties.Cache config = new DuplicateFinderProperties.Cache();
+        config.setMaxEntries(2);
+        config.setTtl(Duration.ofMinutes(10));
+        clock = new MutableClock();
+        cache = new ResultCache(config, clock);
+    }
+
+    @Test
+    @DisplayName("Debe descartar la entrada usada hace más tiempo al superar el máximo")
+    void put_shouldEvictLeastRecentlyUsed() {
+        cache.put("a", result);
+        cache.put("b", result);
+        cache.get("a"); // "b" pasa a ser la menos usada
+        cache.put("c", result);
+
+        assertTrue(cache.get("a").isPresent());
+        assertTrue(cache.get("b").isEmpty());
+        assertTrue(cache.get("c").isPresent());
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    @DisplayName("Debe ignorar las entradas más antiguas que el TTL")
+    void get_shouldExpireEntriesAfterTtl() {
+        cache.put("a", result);
+        clock.advance(Duration.ofMinutes(11));
+
+        assertTrue(cache.get("a").isEmpty());
+        assertEquals(0, cache.size());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
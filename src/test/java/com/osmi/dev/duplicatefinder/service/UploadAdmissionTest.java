@@ -0,0 +1,54 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.config.DuplicateFinderProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del control de admisión por memoria estimada.
+ */
+class UploadAdmissionTest {
+
+    @Test
+    @DisplayName("Debe rechazar la subida que no cabe en el presupuesto y admitirla al liberarse")
+    void acquire_shouldThrottleUntilMemoryIsReleased() {
+        // Arrange: 1 MiB de presupuesto, coste igual al tamaño del archivo
+        DuplicateFinderProperties.Admission config = new DuplicateFinderProperties.Admission();
+        config.setMemoryBudget(DataSize.ofMegabytes(1));
+        config.setCostFactor(1);
+        config.setQueueTimeout(Duration.ofMillis(50));
+        UploadAdmission admission = new UploadAdmission(config, DuplicateFinderMetrics.noop());
+
+        // Act
+        UploadAdmission.Permit first = admission.acquire(800 * 1024);
+
+        // Assert
+        assertThrows(UploadThrottledException.class, () -> admission.acquire(800 * 1024));
+        first.release();
+        first.release();
+        assertEquals(1024, admission.availablePermits());
+        admission.acquire(800 * 1024).release();
+    }
+
+    @Test
+    @DisplayName("Un archivo mayor que el presupuesto debe reservarlo completo en lugar de esperar para siempre")
+    void acquire_shouldCapCostAtWholeBudget() {
+        // Arrange
+        DuplicateFinderProperties.Admission config = new DuplicateFinderProperties.Admission();
+        config.setMemoryBudget(DataSize.ofMegabytes(1));
+        UploadAdmission admission = new UploadAdmission(config, DuplicateFinderMetrics.noop());
+
+        // Act
+        UploadAdmission.Permit permit = admission.acquire(DataSize.ofGigabytes(1).toBytes());
+
+        // Assert
+        assertEquals(0, admission.availablePermits());
+        permit.release();
+        assertEquals(1024, admission.availablePermits());
+    }
+}
@@ -0,0 +1,183 @@
+package com.osmi.dev.duplicatefinder.service;
+
+import com.osmi.dev.duplicatefinder.config.DuplicateFinderProperties;
+import com.osmi.dev.duplicatefinder.model.DuplicateMatch;
+import com.osmi.dev.duplicatefinder.model.JobMode;
+import com.osmi.dev.duplicatefinder.model.JobStatus;
+import com.osmi.dev.duplicatefinder.model.MatchPrecision;
+import com.osmi.dev.duplicatefinder.model.MatchQuery;
+import com.osmi.dev.duplicatefinder.model.UploadJob;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del procesamiento asíncrono de archivos.
+ */
+class UploadJobServiceTest {
+
+    @TempDir
+    Path snapshotDir;
+
+    private UploadJobService jobService;
+
+    @BeforeEach
+    void setUp() {
+        DuplicateFinderProperties properties = new DuplicateFinderProperties();
+        properties.getSnapshots().setEnabled(true);
+        properties.getSnapshots().setDirectory(snapshotDir);
+        jobService = new UploadJobService(new ContactService(properties), new ResultCache(properties),
+                DuplicateFinderMetrics.noop(), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Un trabajo debe terminar con sus coincidencias y el progreso de filas y pares")
+    void submit_shouldCompleteJobWithResultsAndProgress() throws Exception {
+        // Arrange: tres contactos, dos con el mismo email
+        MockMultipartFile file = new MockMultipartFile("file", "contacts.xlsx",
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+                workbook(new String[][]{
+                        {"1", "Ana", "Lopez", "ana@test.com", "28080", "Calle 1"},
+                        {"2", "Ana", "Ruiz", "ANA@test.com", "50001", "Calle 2"},
+                        {"3", "Luis", "Sanz", "luis@test.com", "41001", "Calle 3"}}));
+
+        // Act
+        UploadJob job = jobService.submit(file);
+        UploadJob finished = awaitFinished(job.getId());
+
+        // Assert
+        assertEquals(JobStatus.COMPLETED, finished.getStatus());
+        assertEquals(3, finished.getRowsParsed());
+        assertEquals(1, finished.getPairsCompared());
+        assertEquals(1, finished.getMatchesFound());
+        assertEquals("Alta", finished.getResults().getFirst().getPrecision());
+    }
+
+    @Test
+    @DisplayName("Volver a subir el mismo archivo debe reutilizar el resultado en caché")
+    void submit_shouldReuseCachedResultForSameFile() throws Exception {
+        // Arrange
+        byte[] content = workbook(new String[][]{
+                {"1", "Ana", "Lopez", "ana@test.com", "28080", "Calle 1"},
+                {"2", "Ana", "Lopez", "ana@test.com", "28080", "Calle 1"}});
+        MockMultipartFile file = new MockMultipartFile("file", "contacts.xlsx", "application/octet-stream", content);
+
+        // Act
+        UploadJob first = awaitFinished(jobService.submit(file).getId());
+        UploadJob second = jobService.submit(file);
+
+        // Assert: el segundo trabajo termina al instante con los mismos resultados
+        assertFalse(first.isCached());
+        assertTrue(second.isCached());
+        assertEquals(JobStatus.COMPLETED, second.getStatus());
+        assertEquals(first.getResults(), second.getResults());
+        assertEquals(2, second.getRowsParsed());
+    }
+
+    @Test
+    @DisplayName("Repetir un trabajo con otra consulta debe leer el snapshot y no el archivo")
+    void rerun_shouldReadContactsFromSnapshot() throws Exception {
+        // Arrange: un par de precisión alta y otro de precisión baja
+        MockMultipartFile file = new MockMultipartFile("file", "contacts.xlsx", "application/octet-stream",
+                workbook(new String[][]{
+                        {"1", "Ana", "Lopez", "ana@test.com", "28080", "Calle 1"},
+                        {"2", "Ana", "Ruiz", "ana@test.com", "50001", "Calle 2"},
+                        {"3", "Luis", "Lopez", "luis@test.com", "28080", "Calle 3"}}));
+        UploadJob first = awaitFinished(jobService.submit(file).getId());
+
+        // Act
+        UploadJob rerun = awaitFinished(jobService.rerun(first, JobMode.PAIRS,
+                new MatchQuery(0, MatchPrecision.ALTA, null)).getId());
+
+        // Assert
+        assertEquals(2, first.getMatchesFound());
+        assertEquals(JobStatus.COMPLETED, rerun.getStatus());
+        assertFalse(rerun.isCached());
+        assertEquals(3, rerun.getRowsParsed());
+        assertEquals(List.of(new DuplicateMatch("1", "2", "Alta", 90)), rerun.getResults());
+    }
+
+    @Test
+    @DisplayName("Repetir un trabajo cuyo snapshot ya se borró debe fallar como no disponible")
+    void rerun_shouldRejectMissingSnapshot() throws Exception {
+        // Arrange: el snapshot desaparece, como al descartarlo por antigüedad
+        MockMultipartFile file = new MockMultipartFile("file", "contacts.xlsx", "application/octet-stream",
+                workbook(new String[][]{{"1", "Ana", "Lopez", "ana@test.com", "28080", "Calle 1"}}));
+        UploadJob first = awaitFinished(jobService.submit(file).getId());
+        try (Stream<Path> snapshots = Files.list(snapshotDir)) {
+            for (Path snapshot : snapshots.toList()) {
+                Files.delete(snapshot);
+            }
+        }
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> jobService.rerun(first, JobMode.GROUPS, new MatchQuery()));
+    }
+
+    @Test
+    @DisplayName("Un archivo que no es Excel debe dejar el trabajo en estado FAILED")
+    void submit_shouldFailJobForInvalidFile() throws Exception {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile("file", "contacts.xlsx",
+                "application/octet-stream", "no es un excel".getBytes());
+
+        // Act
+        UploadJob job = jobService.submit(file);
+        UploadJob finished = awaitFinished(job.getId());
+
+        // Assert
+        assertEquals(JobStatus.FAILED, finished.getStatus());
+        assertNotNull(finished.getErrorMessage());
+        assertNull(finished.getMatchesFound());
+    }
+
+    private UploadJob awaitFinished(String id) throws InterruptedException {
+        Instant deadline = Instant.now().plus(Duration.ofSeconds(10));
+        UploadJob job = jobService.find(id).orElseThrow();
+        while (!job.getStatus().isFinished() && Instant.now().isBefore(deadline)) {
+            Thread.sleep(20);
+        }
+        return job;
+    }
+
+    /**
+     * Construye un libro con las dos filas de cabecera y una fila por contacto.
+     */
+    static byte[] workbook(String[][] rows) throws Exception {
+        try (Workbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("Contacts");
+            sheet.createRow(0).createCell(0).setCellValue("Header 1");
+            sheet.createRow(1).createCell(0).setCellValue("Header 2");
+            for (int i = 0; i < rows.length; i++) {
+                Row row = sheet.createRow(i + 2);
+                for (int j = 0; j < rows[i].length; j++) {
+                    row.createCell(j).setCellValue(rows[i][j]);
+                }
+            }
+            workbook.write(out);
+            return out.toByteArray();
+        }
+    }
+}